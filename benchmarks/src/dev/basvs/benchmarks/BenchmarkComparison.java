@@ -0,0 +1,82 @@
+package dev.basvs.benchmarks;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+
+/**
+ * Compares two JMH result files (written with -rf json) and lists the change of every benchmark. Exits with status 1
+ * if any benchmark got slower than the threshold, so it can fail a build.
+ *
+ * Arguments: baseline.json current.json [threshold percent, default 10]
+ */
+public class BenchmarkComparison {
+
+	public static void main(String[] arg) {
+		if (arg.length < 2) {
+			System.out.println("Usage: BenchmarkComparison baseline.json current.json [threshold percent]");
+			System.exit(2);
+		}
+		File baselineFile = new File(arg[0]);
+		if (!baselineFile.exists()) {
+			System.out.println("No baseline at " + baselineFile + ", nothing to compare");
+			return;
+		}
+		double threshold = arg.length > 2 ? Double.parseDouble(arg[2]) : 10.0;
+
+		Map<String, JsonValue> baseline = read(baselineFile);
+		Map<String, JsonValue> current = read(new File(arg[1]));
+
+		int regressions = 0;
+		for (Map.Entry<String, JsonValue> entry : current.entrySet()) {
+			JsonValue before = baseline.get(entry.getKey());
+			JsonValue after = entry.getValue();
+			double afterScore = after.get("primaryMetric").getDouble("score");
+			String unit = after.get("primaryMetric").getString("scoreUnit");
+			if (before == null) {
+				System.out.println(String.format("  new         %-70s %12.3f %s", entry.getKey(), afterScore, unit));
+				continue;
+			}
+			double beforeScore = before.get("primaryMetric").getDouble("score");
+			// Throughput modes report operations per time unit, higher is better
+			boolean higherIsBetter = after.getString("mode").equals("thrpt");
+			double change = (afterScore - beforeScore) / beforeScore * 100.0;
+			double slowdown = higherIsBetter ? -change : change;
+			String verdict = "  ";
+			if (slowdown > threshold) {
+				verdict = "REGRESSION";
+				regressions++;
+			} else if (slowdown < -threshold) {
+				verdict = "improved";
+			}
+			System.out.println(String.format("%-11s %-70s %12.3f -> %12.3f %s (%+.1f%%)", verdict, entry.getKey(),
+					beforeScore, afterScore, unit, change));
+		}
+
+		if (regressions > 0) {
+			System.out.println(regressions + " benchmark(s) more than " + threshold + "% slower than the baseline");
+			System.exit(1);
+		}
+	}
+
+	// Map each benchmark with its parameters to its result
+	private static Map<String, JsonValue> read(File file) {
+		Map<String, JsonValue> results = new LinkedHashMap<String, JsonValue>();
+		JsonValue root = new JsonReader().parse(new FileHandle(file));
+		for (JsonValue result = root.child; result != null; result = result.next) {
+			StringBuilder key = new StringBuilder(result.getString("benchmark"));
+			JsonValue params = result.get("params");
+			if (params != null) {
+				for (JsonValue param = params.child; param != null; param = param.next) {
+					key.append(' ').append(param.name).append('=').append(param.asString());
+				}
+			}
+			results.put(key.toString(), result);
+		}
+		return results;
+	}
+}
@@ -0,0 +1,96 @@
+package dev.basvs.crashlander.controller;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.badlogic.gdx.utils.Array;
+
+import dev.basvs.crashlander.lander.FuelNetwork;
+import dev.basvs.crashlander.lander.part.Part;
+import dev.basvs.crashlander.lander.part.PartDesign;
+import dev.basvs.crashlander.lander.part.Tank;
+
+/**
+ * Fuel lookup for a thruster at the end of a chain of tanks, where only the farthest tank has fuel left. Compares
+ * searching the fuel sources with the compiled route of a {@link FuelNetwork}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FindFuelBenchmark {
+
+	@Param({ "4", "16", "64" })
+	public int depth;
+
+	private Part thruster;
+	private FuelNetwork network;
+
+	@Setup
+	public void setup() {
+		PartDesign tankDesign = new PartDesign();
+		tankDesign.name = "Tank";
+		tankDesign.tank = new Tank();
+		tankDesign.tank.fuel = 10f;
+		PartDesign thrusterDesign = new PartDesign();
+		thrusterDesign.name = "Thruster";
+
+		thruster = new Part();
+		thruster.design = thrusterDesign;
+		Array<Part> tanks = new Array<Part>();
+		Part previous = thruster;
+		for (int d = 0; d < depth; d++) {
+			Part tank = new Part();
+			tank.design = tankDesign;
+			tank.fuel = d == depth - 1 ? tankDesign.tank.fuel : 0f;
+			previous.fuelSources.add(tank);
+			tanks.add(tank);
+			previous = tank;
+		}
+		network = new FuelNetwork(Array.with(thruster), tanks, null);
+	}
+
+	@Benchmark
+	public Part findFuel() {
+		return search(thruster);
+	}
+
+	@Benchmark
+	public int routedFindFuel() {
+		return network.findTank(0);
+	}
+
+	/**
+	 * Get a fuel tank with fuel remaining by searching the fuel sources, depth first, the way the lander controller
+	 * did before it used a {@link FuelNetwork}.
+	 * 
+	 * @param part
+	 * @return
+	 */
+	private static Part search(Part part) {
+		for (int a = 0; a < part.fuelSources.size; a++) {
+			Part other = part.fuelSources.get(a);
+			if (other.design.tank != null && other.fuel > 0) {
+				return other;
+			}
+			other = search(other);
+			if (other != null) {
+				return other;
+			}
+		}
+		return null;
+	}
+}
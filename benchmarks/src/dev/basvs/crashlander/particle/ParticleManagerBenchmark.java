@@ -0,0 +1,104 @@
+package dev.basvs.crashlander.particle;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Particle update and allocation with the given number of living particles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParticleManagerBenchmark {
+
+	private static final float DELTA = 1f / 60;
+
+	@Param({ "500", "10000", "100000" })
+	public int particles;
+
+	private ParticleManager manager;
+	private TextureRegion region;
+
+	@Setup
+	public void setup() {
+		// Leave room for the generator, so spawning does not evict
+		manager = new ParticleManager(particles * 2);
+		region = new TextureRegion();
+		// Fill the store with particles that never die
+		for (int p = 0; p < particles; p++) {
+			manager.spawn(0f, 0f, 1f, 2f, Float.MAX_VALUE, region, -1, -1);
+		}
+		ParticleGenerator generator = new ParticleGenerator();
+		generator.active = true;
+		generator.position = new Vector2(0, 0);
+		generator.velocity = new Vector2(0, 0);
+		generator.texture = new TextureRegion[] { new TextureRegion() };
+		generator.startColor = new Color(1f, 1f, 0f, 1f);
+		generator.endColor = new Color(0.3f, 0.3f, 0.2f, 0.2f);
+		generator.fireInterval = 0.004f;
+		generator.lifeMinimum = 0.3f;
+		generator.lifeMaximum = 0.6f;
+		generator.speedMinimum = 6f;
+		generator.speedMaximum = 7.5f;
+		manager.add(generator);
+	}
+
+	@Benchmark
+	public ParticleManager update() {
+		manager.update(DELTA);
+		return manager;
+	}
+
+	/**
+	 * A store with its budget used up, so every spawn goes through the eviction policy.
+	 */
+	@State(Scope.Thread)
+	public static class FullStore {
+
+		@Param({ "ReplaceOldest", "ReplaceNearestDeath", "DropSpawn" })
+		public EvictionPolicy policy;
+
+		private ParticleManager manager;
+		private TextureRegion region;
+
+		@Setup
+		public void setup() {
+			manager = new ParticleManager(ParticleManager.DEFAULT_MAX_PARTICLES);
+			manager.setEvictionPolicy(policy);
+			region = new TextureRegion();
+			for (int p = 0; p < manager.getMaxParticles(); p++) {
+				manager.spawn(0f, 0f, 1f, 2f, 1f + p, region, -1, -1);
+			}
+		}
+	}
+
+	@Benchmark
+	public int spawnWhenFull(FullStore store) {
+		return store.manager.spawn(0f, 0f, 1f, 2f, 1f, store.region, -1, -1);
+	}
+
+	@Benchmark
+	public int spawnAndRemove() {
+		manager.spawn(0f, 0f, 1f, 2f, 1f, region, -1, -1);
+		manager.remove(0);
+		return manager.getParticleCount();
+	}
+}
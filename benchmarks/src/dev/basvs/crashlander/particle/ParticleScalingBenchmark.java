@@ -0,0 +1,71 @@
+package dev.basvs.crashlander.particle;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * Particle integration with a growing number of threads. Zero threads means integrating on the calling thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParticleScalingBenchmark {
+
+	private static final float DELTA = 1f / 60;
+
+	@Param({ "100000", "1000000" })
+	public int particles;
+
+	@Param({ "0", "1", "2", "4", "8" })
+	public int threads;
+
+	private ParticleManager manager;
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setup() {
+		manager = new ParticleManager(particles);
+		if (threads == 0) {
+			manager.setParallelThreshold(Integer.MAX_VALUE);
+		} else {
+			pool = new ForkJoinPool(threads);
+			manager.setPool(pool);
+			manager.setParallelThreshold(0);
+		}
+		TextureRegion region = new TextureRegion();
+		for (int p = 0; p < particles; p++) {
+			manager.spawn(0f, 0f, 1f, 2f, Float.MAX_VALUE, region, -1, -1);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public ParticleManager update() {
+		manager.update(DELTA);
+		return manager;
+	}
+}
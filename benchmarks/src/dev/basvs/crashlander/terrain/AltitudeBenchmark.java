@@ -0,0 +1,77 @@
+package dev.basvs.crashlander.terrain;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.RayCastCallback;
+import com.badlogic.gdx.physics.box2d.World;
+
+import dev.basvs.crashlander.GameScreen;
+
+/**
+ * Altitude of a position above the landscape, from the heightfield and from a Box2D raycast down to the bottom of the
+ * landscape.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AltitudeBenchmark {
+
+	private static final float X = 1000, Y = 200;
+
+	private World world;
+	private LanderWorld landerWorld;
+	private float hitY;
+
+	private Vector2 from = new Vector2(X * GameScreen.WORLD_TO_BOX2D, Y * GameScreen.WORLD_TO_BOX2D);
+	private Vector2 to = new Vector2(X * GameScreen.WORLD_TO_BOX2D, LanderWorld.LANDSCAPE_POLYGON_BOTTOM_Y
+			* GameScreen.WORLD_TO_BOX2D);
+	private RayCastCallback callback = new RayCastCallback() {
+		@Override
+		public float reportRayFixture(Fixture fixture, Vector2 point, Vector2 normal, float fraction) {
+			hitY = point.y;
+			return fraction;
+		}
+	};
+
+	@Setup
+	public void setup() {
+		world = new World(new Vector2(0, -1), true);
+		landerWorld = new MountainWorldGenerator(42).generate(world, null, 2000);
+		landerWorld.beginPhysicsUpdate();
+		landerWorld.keepPhysicsAround(X);
+		landerWorld.endPhysicsUpdate();
+	}
+
+	@TearDown
+	public void tearDown() {
+		world.dispose();
+	}
+
+	@Benchmark
+	public float heightfield() {
+		return landerWorld.getAltitude(X, Y);
+	}
+
+	@Benchmark
+	public float raycast() {
+		world.rayCast(callback, from, to);
+		return Y - hitY * GameScreen.BOX2D_TO_WORLD;
+	}
+}
@@ -0,0 +1,62 @@
+package dev.basvs.crashlander.terrain;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Landscape shape generation for increasingly wide worlds, without Box2D bodies or sprites, and the same through a
+ * cache that already holds every chunk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TerrainGenerationBenchmark {
+
+	@Param({ "2000", "20000", "200000" })
+	public float width;
+
+	private MountainWorldGenerator generator = new MountainWorldGenerator(42);
+	private float[] heights = new float[LanderWorld.CHUNK_SEGMENTS + 1];
+	private TerrainChunkCache cache;
+	private int chunks;
+
+	@Setup
+	public void setup() {
+		chunks = (int) Math.ceil(width / (generator.getSegmentWidth() * LanderWorld.CHUNK_SEGMENTS));
+		cache = new TerrainChunkCache(generator, LanderWorld.CHUNK_SEGMENTS, Long.MAX_VALUE);
+		for (int c = 0; c < chunks; c++) {
+			cache.getHeights(c);
+		}
+	}
+
+	@Benchmark
+	public float[] generateLandscape() {
+		for (int c = 0; c < chunks; c++) {
+			generator.generateChunk(c, LanderWorld.CHUNK_SEGMENTS, heights);
+		}
+		return heights;
+	}
+
+	@Benchmark
+	public float[] cachedLandscape() {
+		float[] last = null;
+		for (int c = 0; c < chunks; c++) {
+			last = cache.getHeights(c);
+		}
+		return last;
+	}
+}
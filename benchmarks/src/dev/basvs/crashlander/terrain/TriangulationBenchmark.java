@@ -0,0 +1,73 @@
+package dev.basvs.crashlander.terrain;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.badlogic.gdx.math.EarClippingTriangulator;
+import com.badlogic.gdx.utils.ShortArray;
+
+/**
+ * Triangulation of the area below a landscape with the given number of vertices, with ear clipping and as a
+ * heightfield.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TriangulationBenchmark {
+
+	private static final float BOTTOM = LanderWorld.LANDSCAPE_POLYGON_BOTTOM_Y;
+
+	@Param({ "41", "801", "8001" })
+	public int vertices;
+
+	private float[] heights;
+	private float[] polygon;
+	private float[] columns;
+	private EarClippingTriangulator earClipping = new EarClippingTriangulator();
+	private HeightfieldTriangulator heightfield = new HeightfieldTriangulator();
+
+	@Setup
+	public void setup() {
+		MountainWorldGenerator generator = new MountainWorldGenerator(42);
+		heights = new float[vertices];
+		generator.generateChunk(0, vertices - 1, heights);
+		polygon = new float[vertices * 2 + 4];
+		columns = new float[vertices * 4];
+	}
+
+	@Benchmark
+	public ShortArray earClipping() {
+		// Surface from left to right, then the bottom from right to left
+		for (int i = 0; i < vertices; i++) {
+			polygon[i * 2] = i * MountainWorldGenerator.SEGMENT_WIDTH;
+			polygon[i * 2 + 1] = heights[i];
+		}
+		polygon[vertices * 2] = polygon[vertices * 2 - 2];
+		polygon[vertices * 2 + 1] = BOTTOM;
+		polygon[vertices * 2 + 2] = polygon[0];
+		polygon[vertices * 2 + 3] = BOTTOM;
+		return earClipping.computeTriangles(polygon);
+	}
+
+	@Benchmark
+	public short[] heightfield() {
+		for (int i = 0; i < vertices; i++) {
+			HeightfieldTriangulator.setColumn(columns, i, i * MountainWorldGenerator.SEGMENT_WIDTH, heights[i], BOTTOM);
+		}
+		return heightfield.getTriangles(vertices);
+	}
+}
@@ -0,0 +1,91 @@
+package dev.basvs.lib;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Bag against ArrayList and an unordered gdx Array: fill, iterate and empty from the front.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BagBenchmark {
+
+	@Param({ "100", "10000" })
+	public int size;
+
+	private Integer[] items;
+
+	@Setup
+	public void setup() {
+		items = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			items[i] = i;
+		}
+	}
+
+	@Benchmark
+	public long bag() {
+		Bag<Integer> bag = new Bag<Integer>();
+		for (int i = 0; i < size; i++) {
+			bag.add(items[i]);
+		}
+		long sum = 0;
+		for (int i = 0; i < bag.size(); i++) {
+			sum += bag.get(i);
+		}
+		while (!bag.isEmpty()) {
+			sum += bag.remove(0);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long arrayList() {
+		ArrayList<Integer> list = new ArrayList<Integer>(64);
+		for (int i = 0; i < size; i++) {
+			list.add(items[i]);
+		}
+		long sum = 0;
+		for (int i = 0; i < list.size(); i++) {
+			sum += list.get(i);
+		}
+		while (!list.isEmpty()) {
+			sum += list.remove(0);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long gdxArray() {
+		Array<Integer> array = new Array<Integer>(false, 64);
+		for (int i = 0; i < size; i++) {
+			array.add(items[i]);
+		}
+		long sum = 0;
+		for (int i = 0; i < array.size; i++) {
+			sum += array.get(i);
+		}
+		while (array.notEmpty()) {
+			sum += array.removeIndex(0);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,83 @@
+package dev.basvs.lib.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lookup table trigonometry against java.lang.Math.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MathUtilsBenchmark {
+
+	private static final int SAMPLES = 1024;
+
+	private float[] a = new float[SAMPLES];
+	private float[] b = new float[SAMPLES];
+
+	@Setup
+	public void setup() {
+		FastRandom random = new FastRandom(42);
+		for (int i = 0; i < SAMPLES; i++) {
+			a[i] = (random.nextFloat() - 0.5f) * 20f;
+			b[i] = (random.nextFloat() - 0.5f) * 20f;
+		}
+	}
+
+	@Benchmark
+	public void sinLookup(Blackhole blackhole) {
+		for (int i = 0; i < SAMPLES; i++) {
+			blackhole.consume(MathUtils.sin(a[i]));
+		}
+	}
+
+	@Benchmark
+	public void sinMath(Blackhole blackhole) {
+		for (int i = 0; i < SAMPLES; i++) {
+			blackhole.consume((float) Math.sin(a[i]));
+		}
+	}
+
+	@Benchmark
+	public void cosLookup(Blackhole blackhole) {
+		for (int i = 0; i < SAMPLES; i++) {
+			blackhole.consume(MathUtils.cos(a[i]));
+		}
+	}
+
+	@Benchmark
+	public void cosMath(Blackhole blackhole) {
+		for (int i = 0; i < SAMPLES; i++) {
+			blackhole.consume((float) Math.cos(a[i]));
+		}
+	}
+
+	@Benchmark
+	public void atan2Lookup(Blackhole blackhole) {
+		for (int i = 0; i < SAMPLES; i++) {
+			blackhole.consume(MathUtils.atan2(a[i], b[i]));
+		}
+	}
+
+	@Benchmark
+	public void atan2Math(Blackhole blackhole) {
+		for (int i = 0; i < SAMPLES; i++) {
+			blackhole.consume((float) Math.atan2(a[i], b[i]));
+		}
+	}
+}
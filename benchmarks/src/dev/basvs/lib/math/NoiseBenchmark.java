@@ -0,0 +1,66 @@
+package dev.basvs.lib.math;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Simplex noise sampled along a row: 2D noise at y = 0 the way the terrain generator used it, 1D noise, and a whole
+ * row of four octaves at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NoiseBenchmark {
+
+	private static final int SAMPLES = 1024;
+
+	private double[] x = new double[SAMPLES];
+	private SimplexNoiseGenerator generator = new SimplexNoiseGenerator(42);
+	private float[] xf = new float[SAMPLES];
+	private float[] row = new float[SAMPLES];
+	private float[] frequencies = { 0.005f, 0.01f, 0.02f, 0.04f };
+	private float[] amplitudes = { 8f / 15, 4f / 15, 2f / 15, 1f / 15 };
+
+	@Setup
+	public void setup() {
+		FastRandom random = new FastRandom(42);
+		for (int i = 0; i < SAMPLES; i++) {
+			x[i] = random.nextFloat() * 100.0;
+			xf[i] = (float) x[i];
+		}
+	}
+
+	@Benchmark
+	public void noise(Blackhole blackhole) {
+		for (int i = 0; i < SAMPLES; i++) {
+			blackhole.consume(generator.noise(x[i], 0.0));
+		}
+	}
+
+	@Benchmark
+	public void noise1D(Blackhole blackhole) {
+		for (int i = 0; i < SAMPLES; i++) {
+			blackhole.consume(generator.noise(xf[i]));
+		}
+	}
+
+	@Benchmark
+	public float[] fillOctaves() {
+		generator.fill(row, SAMPLES, 0f, 2.5f, frequencies, amplitudes);
+		return row;
+	}
+}
@@ -5,7 +5,6 @@ import com.badlogic.gdx.Input;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Matrix4;
@@ -13,11 +12,11 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.physics.box2d.World;
-import com.badlogic.gdx.utils.Array;
 import dev.basvs.crashlander.lander.Lander;
 import dev.basvs.crashlander.lander.LanderBuilder;
 import dev.basvs.crashlander.lander.part.Part;
 import dev.basvs.crashlander.particle.ParticleManager;
+import dev.basvs.crashlander.simulation.SimulationAssets;
 import dev.basvs.lib.game.AbstractGame;
 import dev.basvs.lib.game.AbstractScreen;
 
@@ -46,17 +45,15 @@ public class DesignScreen extends AbstractScreen {
 
 	private ParticleManager particleManager;
 
+	private SimulationAssets assets;
 	private TextureRegion gaugeBarTexture, gaugeCoverTexture;
 
-	private Array<Body> tempBodyList = new Array<Body>();
-
 	public DesignScreen(AbstractGame game) throws Exception {
 		super(game);
 
-		TextureAtlas partTextures = CrashLander.getInstance().getAssets().get("data/parts.atlas",
-				TextureAtlas.class);
-		gaugeBarTexture = partTextures.findRegion("gauge-small-bar");
-		gaugeCoverTexture = partTextures.findRegion("gauge-small-cover");
+		assets = SimulationAssets.fromAssetManager(game.getAssets());
+		gaugeBarTexture = assets.partTextures.findRegion("gauge-small-bar");
+		gaugeCoverTexture = assets.partTextures.findRegion("gauge-small-cover");
 
 		particleManager = new ParticleManager();
 
@@ -66,7 +63,7 @@ public class DesignScreen extends AbstractScreen {
 	}
 
 	private void setupLander() throws Exception {
-		landerAssembly = new LanderBuilder(world, particleManager);
+		landerAssembly = new LanderBuilder(world, particleManager, assets);
 
 		lander = new Lander();
 
@@ -130,7 +127,7 @@ public class DesignScreen extends AbstractScreen {
 		particleManager.update(delta);
 
 		// Update physics
-		world.step(1f / CrashLander.MAX_FPS, 6, 2);
+		world.step(delta, 6, 2);
 
 		game.camera.position.set(lander.core.body.getPosition().x * BOX2D_TO_RENDER,
 				lander.core.body.getPosition().y * BOX2D_TO_RENDER, 0);
@@ -142,7 +139,7 @@ public class DesignScreen extends AbstractScreen {
 	Matrix4 worldCameraMatrix = new Matrix4();
 
 	@Override
-	public void render() throws Exception {
+	public void render(float alpha) throws Exception {
 
 		Gdx.gl.glClearColor(0, 0, 0, 1f);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
@@ -155,22 +152,15 @@ public class DesignScreen extends AbstractScreen {
 		game.batch.begin();
 
 		// Render lander parts
-		world.getBodies(tempBodyList);
-
-		for (int b = 0; b < tempBodyList.size; b++) {
-			Body body = tempBodyList.get(b);
-			if (body.getUserData() != null) {
-				if (body.getUserData() instanceof Part) {
-					Part part = (Part) body.getUserData();
-					render(game.batch, part.body, part.texture);
-					if (part.design.tank != null) {
-						renderGauge(game.batch, body, part.fuel / part.design.tank.fuel);
-					}
-				}
+		for (int p = 0; p < lander.parts.size; p++) {
+			Part part = lander.parts.get(p);
+			render(game.batch, part.body, part.texture);
+			if (part.design.tank != null) {
+				renderGauge(game.batch, part.body, part.fuel / part.design.tank.fuel);
 			}
 		}
 
-		particleManager.render(game.batch);
+		particleManager.render(game.batch, 0f);
 		game.batch.setColor(Color.WHITE);
 
 		game.batch.end();
@@ -216,7 +206,7 @@ public class DesignScreen extends AbstractScreen {
 
 	@Override
 	public void onDispose() throws Exception {
-		// Do nothing
+		particleManager.dispose();
 	}
 
 	@Override
@@ -1,33 +1,35 @@
 package dev.basvs.crashlander;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Matrix4;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
 import dev.basvs.crashlander.atmosphere.Atmosphere;
 import dev.basvs.crashlander.controller.LanderController;
 import dev.basvs.crashlander.gui.Meters;
+import dev.basvs.crashlander.lander.DebrisManager;
 import dev.basvs.crashlander.lander.Lander;
 import dev.basvs.crashlander.lander.LanderBuilder;
-import dev.basvs.crashlander.lander.design.LanderDesign;
-import dev.basvs.crashlander.lander.design.LanderDesignPart;
 import dev.basvs.crashlander.lander.part.Part;
 import dev.basvs.crashlander.particle.ParticleManager;
+import dev.basvs.crashlander.simulation.Simulation;
+import dev.basvs.crashlander.simulation.SimulationAssets;
+import dev.basvs.crashlander.terrain.LandingPad;
 import dev.basvs.crashlander.terrain.LanderWorld;
 import dev.basvs.crashlander.terrain.MountainWorldGenerator;
+import dev.basvs.crashlander.terrain.TerrainPipeline;
 import dev.basvs.lib.game.AbstractGame;
 import dev.basvs.lib.game.AbstractScreen;
+import dev.basvs.lib.graphics.CameraBounds;
+import dev.basvs.lib.profile.FrameProfiler;
 import dev.basvs.crashlander.controller.LanderController.Control;
-import dev.basvs.crashlander.lander.LanderBuilder.Angle;
 
 public class GameScreen extends AbstractScreen {
 
@@ -41,21 +43,18 @@ public class GameScreen extends AbstractScreen {
 	public static final Color GAUGE_COLOR_BACK = new Color(0f, 0.5f, 0f, 1f);
 	public static final Color GAUGE_COLOR_FRONT = new Color(0f, 1f, 0f, 1f);
 
-	public static final float LANDSCAPE_WIDTH = 2000;
-	public static final float LANDER_START_X = LANDSCAPE_WIDTH / 2;
-	public static final float LANDER_START_Y = 200;
-
 	// Graphics
 	private Atmosphere background;
 	private PolygonSpriteBatch polyBatch;
 	private float userZoom = 1.0f;
 
-	// Box2D stuff
-	private World world;
-
 	// Game data
+	private Simulation simulation;
+	private World world;
 	private LanderController landerController;
 	private Lander lander;
+	private LanderWorld landerWorld;
+	private TerrainPipeline terrainPipeline;
 
 	private ParticleManager particleManager;
 
@@ -63,13 +62,15 @@ public class GameScreen extends AbstractScreen {
 
 	private TextureRegion gaugeBarTexture, gaugeCoverTexture;
 
-	private LanderWorld landerWorld;
-
-	LanderBuilder landerAssembly;
+	// Culling, particles are tested in Box2D units
+	private CameraBounds partBounds = new CameraBounds();
+	private CameraBounds gaugeBounds = new CameraBounds();
+	private CameraBounds particleBounds = new CameraBounds();
+	private CameraBounds terrainBounds = new CameraBounds();
 
-	private Array<Body> tempBodyList = new Array<Body>();
-
-	private AltitudeRaycastCallback callback;
+	// Profiling
+	private FrameProfiler profiler;
+	private int terrainPhase, partsPhase, particlesRenderPhase, metersPhase;
 
 	public GameScreen(AbstractGame game) throws Exception {
 		super(game);
@@ -80,54 +81,41 @@ public class GameScreen extends AbstractScreen {
 
 		polyBatch = new PolygonSpriteBatch();
 
-		TextureAtlas partTextures = CrashLander.getInstance().getAssets().get("data/parts.atlas",
-				TextureAtlas.class);
-		gaugeBarTexture = partTextures.findRegion("gauge-small-bar");
-		gaugeCoverTexture = partTextures.findRegion("gauge-small-cover");
+		SimulationAssets assets = SimulationAssets.fromAssetManager(game.getAssets());
+		gaugeBarTexture = assets.partTextures.findRegion("gauge-small-bar");
+		gaugeCoverTexture = assets.partTextures.findRegion("gauge-small-cover");
 
 		meters = new Meters();
 
-		setupWorld();
-
-		setupLander();
-
-		landerController = new LanderController(lander);
-
-		callback = new AltitudeRaycastCallback(landerWorld, lander);
-	}
-
-	private void setupWorld() {
-		world = new World(new Vector2(0, -1), true);
-		MountainWorldGenerator gen = new MountainWorldGenerator();
-		landerWorld = gen.generate(world, LANDSCAPE_WIDTH);
+		// Only a landscape with a fixed seed, set in the preferences, comes back and is worth storing
+		MountainWorldGenerator generator;
+		if (game.prefs != null && game.prefs.contains("terrainSeed")) {
+			generator = new MountainWorldGenerator(game.prefs.getLong("terrainSeed"));
+		} else {
+			generator = new MountainWorldGenerator();
+			assets.terrainCacheDirectory = null;
+		}
+		simulation = new Simulation(assets, particleManager, Simulation.createDefaultDesign(), generator,
+				Simulation.LANDSCAPE_WIDTH);
+		simulation.setTickRate(game.getTickRate());
+
+		profiler = game.getProfiler();
+		simulation.setProfiler(profiler);
+		terrainPhase = profiler.addPhase("render terrain");
+		partsPhase = profiler.addPhase("render parts");
+		particlesRenderPhase = profiler.addPhase("render particles");
+		metersPhase = profiler.addPhase("render meters");
+		world = simulation.getWorld();
+		landerWorld = simulation.getLanderWorld();
+		// Build terrain ahead on the cores the render thread does not use
+		terrainPipeline = new TerrainPipeline(landerWorld.getMeshBuilder(), Math.max(1, Runtime.getRuntime()
+				.availableProcessors() - 1));
+		landerWorld.setPipeline(terrainPipeline);
+		lander = simulation.getLander();
+		landerController = simulation.getLanderController();
 		userZoom = 1.0f;
 	}
 
-	private void setupLander() throws Exception {
-		landerAssembly = new LanderBuilder(world, particleManager);
-
-		float xPos = LANDER_START_X * WORLD_TO_BOX2D;
-		float yPos = LANDER_START_Y * WORLD_TO_BOX2D;
-
-		LanderDesign design = new LanderDesign();
-		design.name = "Test lander";
-		design.core = new LanderDesignPart();
-		design.core.partName = "Cockpit";
-
-		LanderDesignPart largeTank = design.core.attach("Large fuel tank", 1, 0, Angle.Down, false);
-		LanderDesignPart largeThruster = largeTank.attach("Large engine", 2, 0, Angle.Down, true).control(Control.Up);
-
-		LanderDesignPart leftLowerTank = largeTank.attach("Small fuel tank", 3, 1, Angle.Down, true);
-		LanderDesignPart leftThruster = leftLowerTank.attach("Small engine", 2, 0, Angle.Down, true)
-				.control(Control.Right);
-
-		LanderDesignPart rightLowerTank = largeTank.attach("Small fuel tank", 1, 3, Angle.Down, true);
-		LanderDesignPart rightThruster = rightLowerTank.attach("Small engine", 2, 0, Angle.Down, true)
-				.control(Control.Left);
-
-		lander = landerAssembly.buildFromDesign(design, xPos, yPos);
-	}
-
 	@Override
 	public void onActivate() {
 		// Do nothing
@@ -146,106 +134,118 @@ public class GameScreen extends AbstractScreen {
 	@Override
 	public void update(float delta) throws Exception {
 
-		// Move lander to other side of landscape boundaries if it crosses the edge
-		// TODO: warnings & destruction if flying outside border
-		float landerX = lander.core.body.getPosition().x * BOX2D_TO_WORLD;
-		if (landerX > landerWorld.getRightX()) {
-			lander.teleport(-(landerWorld.getRightX() - landerWorld.getLeftX()), 0f);
-			landerX = lander.core.body.getPosition().x * BOX2D_TO_WORLD;
-			System.out.println("new x: " + (int) landerX);
-		} else if (landerX < landerWorld.getLeftX()) {
-			lander.teleport((landerWorld.getRightX() - landerWorld.getLeftX()), 0f);
-			landerX = lander.core.body.getPosition().x * BOX2D_TO_WORLD;
-			System.out.println("new x: " + (int) landerX);
-		}
-
-		background.setAltitude(lander.core.body.getPosition().y * BOX2D_TO_WORLD);
-
-		particleManager.update(delta);
+		simulation.update(delta);
+	}
 
-		// Update physics
-		world.step(1f / CrashLander.MAX_FPS, 6, 2);
+	Box2DDebugRenderer debugRenderer = new Box2DDebugRenderer();
+	Matrix4 worldCameraMatrix = new Matrix4();
 
-		landerController.update(delta, world, game.camera);
+	@Override
+	public void render(float alpha) throws Exception {
 
-		// Center camera on lander and set zoom based on speed
-		game.camera.position.set(lander.core.body.getPosition().x * BOX2D_TO_RENDER,
-				lander.core.body.getPosition().y * BOX2D_TO_RENDER, 0);
+		// Center camera on the interpolated lander position and set zoom based on speed
+		float landerX = lander.core.getInterpolatedX(alpha);
+		float landerY = lander.core.getInterpolatedY(alpha);
+		game.camera.position.set(landerX * BOX2D_TO_RENDER, landerY * BOX2D_TO_RENDER, 0);
 		double velocity = lander.core.body.getLinearVelocity().len();
 		game.camera.zoom = userZoom * (float)Math.max(Math.min(Math.pow(velocity, 0.2), 10.0f), 1.0f);
 		game.camera.update();
-	}
+		partBounds.set(game.camera);
+		gaugeBounds.set(game.camera);
+		particleBounds.set(game.camera, RENDER_TO_BOX2D);
+		terrainBounds.set(game.camera, RENDER_TO_WORLD);
 
-	Box2DDebugRenderer debugRenderer = new Box2DDebugRenderer();
-	Matrix4 worldCameraMatrix = new Matrix4();
-
-	@Override
-	public void render() throws Exception {
+		background.setAltitude(landerY * BOX2D_TO_WORLD);
 
 		worldCameraMatrix.set(game.camera.combined);
 		worldCameraMatrix.scl(BOX2D_TO_RENDER);
 
 		background.render(game.batch);
 
+		profiler.begin(terrainPhase);
 		polyBatch.setProjectionMatrix(game.camera.combined);
 		polyBatch.begin();
-		landerWorld.getPolySprite().draw(polyBatch);
+		terrainPipeline.setFocusX(landerX * BOX2D_TO_WORLD);
+		landerWorld.updateSprites(terrainBounds.getLeft(), terrainBounds.getRight());
+		landerWorld.render(polyBatch, game.camera.zoom);
 		polyBatch.end();
+		profiler.end(terrainPhase);
 
 		// Render world
 		game.batch.setProjectionMatrix(game.camera.combined);
 		game.batch.begin();
 
 		// Render lander parts
-		world.getBodies(tempBodyList);
-
-		for (int b = 0; b < tempBodyList.size; b++) {
-			Body body = tempBodyList.get(b);
-			if (body.getUserData() != null) {
-				if (body.getUserData() instanceof Part) {
-					Part part = (Part) body.getUserData();
-					render(game.batch, part.body, part.texture);
-					if (part.design.tank != null) {
-						renderGauge(game.batch, body, part.fuel / part.design.tank.fuel);
-					}
-				}
-			}
+		profiler.begin(partsPhase);
+		renderParts(lander, alpha);
+		Array<Lander> wrecks = simulation.getDebrisManager().getWrecks();
+		for (int w = 0; w < wrecks.size; w++) {
+			renderParts(wrecks.get(w), alpha);
 		}
+		// Draw the parts now, so their time is not booked to the particles
+		game.batch.flush();
+		profiler.end(partsPhase);
 
-		particleManager.render(game.batch);
+		profiler.begin(particlesRenderPhase);
+		// Move particles back to the rendered moment, which lies between the previous and the current tick
+		particleManager.render(game.batch, (alpha - 1f) * game.getTickSeconds(), particleBounds);
 		game.batch.setColor(Color.WHITE);
 
 		game.batch.end();
+		profiler.end(particlesRenderPhase);
 
+		profiler.begin(metersPhase);
 		game.batch.begin();
 		game.batch.setProjectionMatrix(game.guiCamera.combined);
 		// Determine altitude of lander
-		world.rayCast(callback, lander.core.body.getPosition(),
-				new Vector2(lander.core.body.getPosition().x, LanderWorld.LANDSCAPE_POLYGON_BOTTOM_Y * WORLD_TO_BOX2D));
-		meters.render(callback.getAltitude(), lander.core.body.getLinearVelocity().x * BOX2D_TO_WORLD,
+		float altitude = landerWorld.getAltitude(lander.core.body.getPosition().x * BOX2D_TO_WORLD,
+				lander.core.body.getPosition().y * BOX2D_TO_WORLD);
+		meters.render(altitude, lander.core.body.getLinearVelocity().x * BOX2D_TO_WORLD,
 				lander.core.body.getLinearVelocity().y * BOX2D_TO_WORLD, game.batch);
 		game.batch.end();
+		profiler.end(metersPhase);
 		game.batch.setProjectionMatrix(game.camera.combined);
 
 		// debugRenderer.render(world, worldCameraMatrix);
 	}
 
-	private void render(SpriteBatch batch, Body body, TextureRegion texture) {
-		float x = body.getPosition().x * GameScreen.BOX2D_TO_RENDER;
-		float y = body.getPosition().y * GameScreen.BOX2D_TO_RENDER;
-		float angle = body.getAngle() * MathUtils.radiansToDegrees;
+	private void renderParts(Lander lander, float alpha) {
+		for (int p = 0; p < lander.parts.size; p++) {
+			Part part = lander.parts.get(p);
+			render(game.batch, part, part.texture, alpha);
+			if (part.design.tank != null) {
+				renderGauge(game.batch, part, part.fuel / part.design.tank.fuel, alpha);
+			}
+		}
+	}
+
+	private void render(SpriteBatch batch, Part part, TextureRegion texture, float alpha) {
+		float x = part.getInterpolatedX(alpha) * GameScreen.BOX2D_TO_RENDER;
+		float y = part.getInterpolatedY(alpha) * GameScreen.BOX2D_TO_RENDER;
 		float w = texture.getRegionWidth();
 		float h = texture.getRegionHeight();
+		// Half the diagonal covers the texture at any angle
+		float extent = (float) Math.sqrt(w * w + h * h) / 2;
+		if (!partBounds.isVisible(x, y, extent, extent)) {
+			return;
+		}
+		float angle = part.getInterpolatedAngle(alpha) * MathUtils.radiansToDegrees;
 		batch.draw(texture, x - w / 2, y - h / 2, w / 2, h / 2, w, h, 1, 1, angle);
 	}
 
-	private void renderGauge(SpriteBatch batch, Body body, float filled) {
-		float x = body.getPosition().x * GameScreen.BOX2D_TO_RENDER;
-		float y = body.getPosition().y * GameScreen.BOX2D_TO_RENDER;
-		float angle = body.getAngle() * MathUtils.radiansToDegrees;
+	private void renderGauge(SpriteBatch batch, Part part, float filled, float alpha) {
+		float x = part.getInterpolatedX(alpha) * GameScreen.BOX2D_TO_RENDER;
+		float y = part.getInterpolatedY(alpha) * GameScreen.BOX2D_TO_RENDER;
+		float w = gaugeCoverTexture.getRegionWidth();
+		float h = gaugeCoverTexture.getRegionHeight();
+		float extent = (float) Math.sqrt(w * w + h * h) / 2;
+		if (!gaugeBounds.isVisible(x, y, extent, extent)) {
+			return;
+		}
+		float angle = part.getInterpolatedAngle(alpha) * MathUtils.radiansToDegrees;
 		game.batch.setColor(GAUGE_COLOR_BACK);
-		float w = gaugeBarTexture.getRegionWidth();
-		float h = gaugeBarTexture.getRegionHeight();
+		w = gaugeBarTexture.getRegionWidth();
+		h = gaugeBarTexture.getRegionHeight();
 		batch.draw(gaugeBarTexture, x - w / 2, y - h / 2, w / 2, h / 2, w, h, 1, 1, angle);
 		game.batch.setColor(GAUGE_COLOR_FRONT);
 		batch.draw(gaugeBarTexture, x - w / 2, y - h / 2, w / 2, h / 2, w, h * filled, 1, 1, angle);
@@ -256,6 +256,45 @@ public class GameScreen extends AbstractScreen {
 
 	}
 
+	/**
+	 * Log the statistics gathered since the last time, next to the frame profile, and reset them.
+	 */
+	private void logStatistics() {
+		logCulling("parts", partBounds);
+		logCulling("gauges", gaugeBounds);
+		logCulling("particles", particleBounds);
+		Gdx.app.log("GameScreen", "particles alive: " + particleManager.getParticleCount() + ", spawned: "
+				+ particleManager.getSpawns() + ", evicted: " + particleManager.getEvictions() + ", dropped: "
+				+ particleManager.getDrops());
+		particleManager.resetStatistics();
+		Gdx.app.log("GameScreen", "terrain bodies loaded: " + landerWorld.getBodiesLoaded() + ", unloaded: "
+				+ landerWorld.getBodiesUnloaded() + ", sprites loaded: " + landerWorld.getSpritesLoaded()
+				+ ", unloaded: " + landerWorld.getSpritesUnloaded() + ", craters: " + landerWorld.getCratersApplied()
+				+ ", chunks rebuilt: " + landerWorld.getChunksRebuilt());
+		landerWorld.resetStatistics();
+		Gdx.app.log("GameScreen", "terrain pipeline requested: " + terrainPipeline.getRequested() + ", completed: "
+				+ terrainPipeline.getCompleted() + ", cancelled: " + terrainPipeline.getCancelled() + ", rejected: "
+				+ terrainPipeline.getRejected() + ", pending: " + terrainPipeline.getPendingCount());
+		terrainPipeline.resetStatistics();
+		DebrisManager debrisManager = simulation.getDebrisManager();
+		LanderBuilder landerBuilder = simulation.getLanderBuilder();
+		Gdx.app.log("GameScreen", "debris: " + debrisManager.getDebris().size + ", wrecks: "
+				+ debrisManager.getWrecks().size + ", put to sleep: " + debrisManager.getSleeps() + ", despawned: "
+				+ debrisManager.getDespawns() + ", parts reused: " + landerBuilder.getPartsReused() + ", free: "
+				+ landerBuilder.getFreePartCount());
+		debrisManager.resetStatistics();
+		landerBuilder.resetStatistics();
+		float landerX = lander.core.body.getPosition().x * BOX2D_TO_WORLD;
+		LandingPad pad = landerWorld.getLandingZones().findNearest(landerX);
+		Gdx.app.log("GameScreen", "landing pads: " + landerWorld.getLandingZones().getPads().size + ", nearest: "
+				+ (pad == null ? "none" : pad.getCenterX() - landerX + " away, " + pad.getWidth() + " wide"));
+	}
+
+	private void logCulling(String name, CameraBounds bounds) {
+		Gdx.app.log("GameScreen", name + " drawn: " + bounds.getDrawn() + ", culled: " + bounds.getCulled());
+		bounds.resetStatistics();
+	}
+
 	@Override
 	public void onResize(int width, int height) throws Exception {
 		// Do nothing
@@ -268,7 +307,9 @@ public class GameScreen extends AbstractScreen {
 
 	@Override
 	public void onDispose() throws Exception {
-		// Do nothing
+		terrainPipeline.dispose();
+		simulation.dispose();
+		particleManager.dispose();
 	}
 
 	@Override
@@ -322,22 +363,27 @@ public class GameScreen extends AbstractScreen {
 	@Override
 	public boolean handleKeyDown(int keycode) {
 		if (keycode == Input.Keys.W) {
-			landerController.controlSwitch(lander.core, Control.Up, true);
+			landerController.controlSwitch(Control.Up, true);
 		}
 		if (keycode == Input.Keys.A) {
-			landerController.controlSwitch(lander.core, Control.Left, true);
+			landerController.controlSwitch(Control.Left, true);
 		}
 		if (keycode == Input.Keys.D) {
-			landerController.controlSwitch(lander.core, Control.Right, true);
+			landerController.controlSwitch(Control.Right, true);
 		}
 		if (keycode == Input.Keys.S) {
-			landerController.controlSwitch(lander.core, Control.Down, true);
+			landerController.controlSwitch(Control.Down, true);
 		}
 		if (keycode == Input.Keys.Q) {
-			landerController.controlSwitch(lander.core, Control.StrafeLeft, true);
+			landerController.controlSwitch(Control.StrafeLeft, true);
 		}
 		if (keycode == Input.Keys.E) {
-			landerController.controlSwitch(lander.core, Control.StrafeRight, true);
+			landerController.controlSwitch(Control.StrafeRight, true);
+		}
+		if (keycode == Input.Keys.R) {
+			simulation.respawn();
+			lander = simulation.getLander();
+			landerController = simulation.getLanderController();
 		}
 		return true;
 	}
@@ -345,22 +391,26 @@ public class GameScreen extends AbstractScreen {
 	@Override
 	public boolean handleKeyUp(int keycode) {
 		if (keycode == Input.Keys.W) {
-			landerController.controlSwitch(lander.core, Control.Up, false);
+			landerController.controlSwitch(Control.Up, false);
 		}
 		if (keycode == Input.Keys.A) {
-			landerController.controlSwitch(lander.core, Control.Left, false);
+			landerController.controlSwitch(Control.Left, false);
 		}
 		if (keycode == Input.Keys.D) {
-			landerController.controlSwitch(lander.core, Control.Right, false);
+			landerController.controlSwitch(Control.Right, false);
 		}
 		if (keycode == Input.Keys.S) {
-			landerController.controlSwitch(lander.core, Control.Down, false);
+			landerController.controlSwitch(Control.Down, false);
 		}
 		if (keycode == Input.Keys.Q) {
-			landerController.controlSwitch(lander.core, Control.StrafeLeft, false);
+			landerController.controlSwitch(Control.StrafeLeft, false);
 		}
 		if (keycode == Input.Keys.E) {
-			landerController.controlSwitch(lander.core, Control.StrafeRight, false);
+			landerController.controlSwitch(Control.StrafeRight, false);
+		}
+		if (keycode == Input.Keys.F9) {
+			game.dumpProfile();
+			logStatistics();
 		}
 		return true;
 	}
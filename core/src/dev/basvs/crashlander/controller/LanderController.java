@@ -1,23 +1,16 @@
 package dev.basvs.crashlander.controller;
 
-import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.audio.Sound;
-import com.badlogic.gdx.graphics.Camera;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.Joint;
-import com.badlogic.gdx.physics.box2d.World;
-import com.badlogic.gdx.utils.Array;
-import dev.basvs.crashlander.CrashLander;
 import dev.basvs.crashlander.GameScreen;
 import dev.basvs.crashlander.lander.Lander;
+import dev.basvs.crashlander.lander.StructuralIntegrity;
 import dev.basvs.crashlander.lander.part.Part;
 import dev.basvs.crashlander.particle.ParticleGenerator;
 
 public class LanderController {
 
 	public static final float ZERO_GRAVITY_ALTITUDE = 100000f;
-	public final static float JOINT_BREAK_FORCE = 0.003f;
 
 	private Sound thrusterSound, explosionSound;
 
@@ -25,32 +18,49 @@ public class LanderController {
 		Up, Right, Down, Left, StrafeLeft, StrafeRight
 	};
 
-	private Array<Body> bodies = new Array<Body>();
-
 	private Lander lander;
 
-	public LanderController(Lander lander) {
+	/**
+	 * Create a controller for a lander. The sounds may be null when running without audio.
+	 * 
+	 * @param lander
+	 * @param thrusterSound
+	 * @param explosionSound
+	 */
+	public LanderController(Lander lander, Sound thrusterSound, Sound explosionSound) {
 		this.lander = lander;
-
-		AssetManager assets = CrashLander.getInstance().getAssets();
-		thrusterSound = assets.get("data/audio/rocket.wav");
-		explosionSound = assets.get("data/audio/boom.wav");
+		this.thrusterSound = thrusterSound;
+		this.explosionSound = explosionSound;
+		if (lander.integrity != null) {
+			lander.integrity.addListener(new StructuralIntegrity.BreakListener() {
+				@Override
+				public void jointBroken(Part parent, Part child) {
+					if (LanderController.this.explosionSound != null) {
+						LanderController.this.explosionSound.play();
+					}
+				}
+			});
+		}
 	}
 
-	public void update(float delta, World world, Camera camera) {
+	public void update(float delta) {
 
 		float gravityScale = Math.max(0,
 				1f - ((lander.core.body.getPosition().y * GameScreen.BOX2D_TO_WORLD) / ZERO_GRAVITY_ALTITUDE));
 
-		world.getBodies(bodies);
-		for (int b = 0; b < bodies.size; b++) {
-			Object obj = bodies.get(b).getUserData();
-			if (obj instanceof Part) {
-				Part part = (Part) obj;
-				handleJointBreaking(part, delta, world);
-				// TODO: also detach fuel tanks
-				updatePart(delta, part, gravityScale, camera);
-			}
+		// Break overloaded joints first, the step that overloaded them is done
+		if (lander.integrity != null) {
+			lander.integrity.update(delta);
+		}
+
+		for (int p = 0; p < lander.parts.size; p++) {
+			lander.parts.get(p).body.setGravityScale(gravityScale);
+		}
+		for (int t = 0; t < lander.thrusters.size; t++) {
+			updateThruster(delta, lander.thrusters.get(t), t);
+		}
+		for (int e = 0; e < lander.emitters.size; e++) {
+			updateEmitter(lander.emitters.get(e));
 		}
 	}
 
@@ -61,119 +71,75 @@ public class LanderController {
 	 * @param control
 	 * @param on
 	 */
-	public void controlSwitch(Part part, Control control, boolean on) {
-		// Control this part
-		if (part.control == control) {
-			part.active = on;
-			if (part.design.thruster != null) {
-				if (on) {
-					thrusterSound.loop();
-				} else {
-					thrusterSound.stop();
+	public void controlSwitch(Control control, boolean on) {
+		// Parts that broke off no longer listen, whether the others are welded or share a body
+		for (int p = 0; p < lander.parts.size; p++) {
+			Part part = lander.parts.get(p);
+			if (part.control == control && !part.detached) {
+				part.active = on;
+				if (part.design.thruster != null && thrusterSound != null) {
+					if (on) {
+						thrusterSound.loop();
+					} else {
+						thrusterSound.stop();
+					}
 				}
 			}
 		}
-
-		// Control any attached parts
-		int nAttach = part.body.getJointList().size;
-		for (int a = 0; a < nAttach; a++) {
-			Part other = (Part) part.body.getJointList().get(a).joint.getBodyB().getUserData();
-			if (other != part) {
-				controlSwitch(other, control, on);
-			}
-		}
 	}
 
-	/**
-	 * Break joints attached to this body if the force that is applied is too
-	 * strong.
-	 * 
-	 * @param delta
-	 * @param world
-	 */
-	private void handleJointBreaking(Part part, float delta, World world) {
-		int joints = part.body.getJointList().size;
-		for (int j = 0; j < joints; j++) {
-			Joint joint = part.body.getJointList().get(j).joint;
-			Part otherPart = (Part) joint.getBodyB().getUserData();
-			if (otherPart != part) {
-				if (joint.getReactionForce(-delta).len() > JOINT_BREAK_FORCE) {
-					world.destroyJoint(joint);
-					explosionSound.play();
-					joints--;
-				}
-			}
-		}
-	}
+	private Vector2 thrustTempVector = new Vector2(0, 0);
 
 	/**
-	 * Update the part, such as adjusting gravity, applying thrust and activating
-	 * lights.
+	 * Burn fuel and apply thrust if the thruster is active. The thruster runs at full power as long as it gets any fuel
+	 * and switches off when its tanks run dry.
 	 * 
+	 * @param delta
 	 * @param part
-	 * @param gravityScale
+	 * @param thruster
+	 *            position of the part in the thrusters of the lander
 	 */
-	private Vector2 thrustTempVector = new Vector2(0, 0);
-
-	private void updatePart(float delta, Part part, float gravityScale, Camera camera) {
-		part.body.setGravityScale(gravityScale);
-
-		if (part.active && part.design.thruster != null) {
+	private void updateThruster(float delta, Part part, int thruster) {
+		if (part.active) {
 			float fuelConsumption = part.design.thruster.fuelPerSecond * delta;
-			boolean thrust = false;
-			while (fuelConsumption > 0) {
-				Part tank = findFuel(part);
-				if (tank != null) {
-					if (tank.fuel >= fuelConsumption) {
-						tank.fuel -= fuelConsumption;
-						fuelConsumption = 0;
-					} else {
-						fuelConsumption -= tank.fuel;
-						tank.fuel = 0;
-					}
-					thrust = true;
-				} else {
-					fuelConsumption = 0;
-					part.active = false;
+			float missing = lander.fuelNetwork.draw(thruster, fuelConsumption);
+			boolean thrust = missing < fuelConsumption;
+			if (missing > 0) {
+				part.active = false;
+				if (thrusterSound != null) {
 					thrusterSound.stop();
 				}
 			}
 			if (thrust) {
 				thrustTempVector.set(0, part.design.thruster.powerPerFuel * part.design.thruster.fuelPerSecond);
-				part.body.applyForceToCenter(part.body.getWorldVector(thrustTempVector), true);
-			}
-		}
-
-		if (part.particleGen != null) {
-			ParticleGenerator particleGen = part.particleGen;
-			particleGen.active = part.active;
-			if (part.active) {
-				particleGen.position.set(part.body.getPosition());
-				thrustTempVector.set(part.design.thruster.position).scl(GameScreen.WORLD_TO_BOX2D);
-				particleGen.position.add(part.body.getWorldVector(thrustTempVector));
-				particleGen.angle = part.body.getAngle();
-				particleGen.velocity.set(part.body.getLinearVelocity());
+				part.getWorldVector(thrustTempVector, thrustTempVector);
+				if (part.compound) {
+					lander.compound.applyForce(part, thrustTempVector);
+				} else {
+					part.body.applyForceToCenter(thrustTempVector, true);
+				}
 			}
 		}
 	}
 
 	/**
-	 * Get a fuel tank with fuel remaining.
+	 * Move the particle generator of the part along with its thruster.
 	 * 
 	 * @param part
-	 * @return
 	 */
-	private Part findFuel(Part part) {
-		for (int a = 0; a < part.fuelSources.size; a++) {
-			Part other = part.fuelSources.get(a);
-			if (other.design.tank != null && other.fuel > 0) {
-				return other;
-			}
-			other = findFuel(other);
-			if (other != null) {
-				return other;
+	private void updateEmitter(Part part) {
+		ParticleGenerator particleGen = part.particleGen;
+		particleGen.active = part.active;
+		if (part.active) {
+			particleGen.position.set(part.getX(), part.getY());
+			thrustTempVector.set(part.design.thruster.position).scl(GameScreen.WORLD_TO_BOX2D);
+			particleGen.position.add(part.getWorldVector(thrustTempVector, thrustTempVector));
+			particleGen.angle = part.getAngle();
+			if (part.compound) {
+				particleGen.velocity.set(part.body.getLinearVelocityFromWorldPoint(particleGen.position));
+			} else {
+				particleGen.velocity.set(part.body.getLinearVelocity());
 			}
 		}
-		return null;
 	}
 }
@@ -0,0 +1,382 @@
+package dev.basvs.crashlander.lander;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Joint;
+import com.badlogic.gdx.physics.box2d.Manifold;
+import com.badlogic.gdx.physics.box2d.Transform;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.physics.box2d.joints.WeldJoint;
+import com.badlogic.gdx.physics.box2d.joints.WeldJointDef;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import dev.basvs.crashlander.lander.part.Part;
+
+/**
+ * The parts of a lander welded into a single body, with a fixture per part, so the solver has no weld joints to work
+ * on while nothing can break. The parts are placed where their joints hold them, and keep their own transform within
+ * the body. The bodies of the parts are deactivated rather than destroyed, and are used again when the body is split.
+ *
+ * After each step the load every joint would have carried is worked out from the rigid motion of the body: the
+ * momentum the parts on the child side of the joint gained, minus the impulses that reached them from contacts,
+ * thrust and gravity. When a joint comes close to its break force, the lander is split into a body per part again,
+ * welded as it was built and set back to where it was before the step, so the joints take the load themselves in the
+ * next step. Splitting puts the lander one step behind the rest of the world.
+ *
+ * The body does not fly exactly like the welded parts. Box2D solves weld joints iteratively, which makes a spinning
+ * welded lander lose energy: under a constant torque its spin levels off, while the rigid body keeps spinning up.
+ * Flights under thrust therefore take different paths, so the mode is off unless asked for.
+ */
+public class CompoundBody implements ContactListener {
+
+	// Fraction of the break force at which the body is split. The joints of welded parts also carry loads a rigid body
+	// does not show, like the vibrations after an impact, so the body is split early and the joints decide.
+	public static final float SPLIT_LOAD = 0.5f;
+
+	private World world;
+	private Lander lander;
+	private Body body;
+
+	// The joints the parts were welded with: parts, anchors (ax, ay, bx, by) and reference angles
+	private Array<Part> parents = new Array<Part>();
+	private Array<Part> children = new Array<Part>();
+	private FloatArray anchors = new FloatArray();
+	private FloatArray referenceAngles = new FloatArray();
+
+	// Welded parts with their mass, and per joint the force it breaks at and the parts on its child side
+	private Array<Part> parts = new Array<Part>();
+	private ObjectIntMap<Part> partIndices = new ObjectIntMap<Part>();
+	private FloatArray masses = new FloatArray();
+	private FloatArray breakForces = new FloatArray();
+	private int[][] subtrees;
+
+	// Impulses that reached each part during the current step from contacts, and forces applied to it
+	private float[] impulseX, impulseY, forceX, forceY;
+	// Highest load on a joint in the last step, as a fraction of its break force
+	private float load = 0;
+
+	// Body state before the current step
+	private float delta;
+	private float x, y, angle, velocityX, velocityY, angularVelocity, centerX, centerY;
+
+	private Vector2 tempVector = new Vector2();
+	private IntArray tempSubtree = new IntArray();
+
+	/**
+	 * Weld the core of a lander and all parts joined to it into one body. The joints of the parts are removed from the
+	 * structural integrity of the lander until the body is split.
+	 *
+	 * @param world
+	 * @param lander
+	 */
+	public CompoundBody(World world, Lander lander) {
+		this.world = world;
+		this.lander = lander;
+
+		StructuralIntegrity integrity = lander.integrity;
+		for (int j = 0; j < integrity.getJointCount(); j++) {
+			WeldJoint joint = (WeldJoint) integrity.getJoint(j);
+			Part parent = integrity.getParent(j);
+			Part child = integrity.getChild(j);
+			parents.add(parent);
+			children.add(child);
+			anchors.add(joint.getLocalAnchorA().x, joint.getLocalAnchorA().y, joint.getLocalAnchorB().x,
+					joint.getLocalAnchorB().y);
+			referenceAngles.add(joint.getReferenceAngle());
+			breakForces.add(Math.min(StructuralIntegrity.getBreakForce(parent.design),
+					StructuralIntegrity.getBreakForce(child.design)));
+		}
+
+		Body coreBody = lander.core.body;
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = BodyType.DynamicBody;
+		bodyDef.position.set(coreBody.getPosition());
+		bodyDef.angle = coreBody.getAngle();
+		bodyDef.linearVelocity.set(coreBody.getLinearVelocity());
+		bodyDef.angularVelocity = coreBody.getAngularVelocity();
+		body = world.createBody(bodyDef);
+		// Not a part, the fixtures tell which part was hit
+		body.setUserData(this);
+
+		weld(lander.core, 0, 0, 0);
+
+		impulseX = new float[parts.size];
+		impulseY = new float[parts.size];
+		forceX = new float[parts.size];
+		forceY = new float[parts.size];
+		subtrees = new int[children.size][];
+		for (int j = 0; j < children.size; j++) {
+			tempSubtree.clear();
+			collect(children.get(j));
+			subtrees[j] = tempSubtree.toArray();
+		}
+	}
+
+	// Collect the indices of a part and all parts joined to it on its child side
+	private void collect(Part part) {
+		tempSubtree.add(partIndices.get(part, -1));
+		for (int j = 0; j < parents.size; j++) {
+			if (parents.get(j) == part) {
+				collect(children.get(j));
+			}
+		}
+	}
+
+	// Move a part into the body at a transform relative to the core, followed by the parts joined to it
+	private void weld(Part part, float localX, float localY, float localAngle) {
+		Body ownBody = part.body;
+		part.centerX = ownBody.getLocalCenter().x;
+		part.centerY = ownBody.getLocalCenter().y;
+		partIndices.put(part, parts.size);
+		parts.add(part);
+		masses.add(ownBody.getMass());
+		// Keep the body for when the compound body is split, without its joints
+		lander.integrity.remove(part);
+		while (ownBody.getJointList().size > 0) {
+			world.destroyJoint(ownBody.getJointList().get(0).joint);
+		}
+		ownBody.setActive(false);
+		part.ownBody = ownBody;
+
+		Fixture fixture = LanderBuilder.createFixture(body, part.design, localX, localY, localAngle);
+		fixture.setUserData(part);
+		part.body = body;
+		part.compound = true;
+		part.localX = localX;
+		part.localY = localY;
+		part.localAngle = localAngle;
+		part.storePreviousTransform();
+
+		float cos = (float) Math.cos(localAngle);
+		float sin = (float) Math.sin(localAngle);
+		for (int j = 0; j < parents.size; j++) {
+			if (parents.get(j) != part) {
+				continue;
+			}
+			// The anchors of both parts meet, with the child turned by the reference angle
+			float childAngle = localAngle + referenceAngles.get(j);
+			float childCos = (float) Math.cos(childAngle);
+			float childSin = (float) Math.sin(childAngle);
+			float ax = anchors.get(j * 4), ay = anchors.get(j * 4 + 1);
+			float bx = anchors.get(j * 4 + 2), by = anchors.get(j * 4 + 3);
+			weld(children.get(j), localX + cos * ax - sin * ay - (childCos * bx - childSin * by),
+					localY + sin * ax + cos * ay - (childSin * bx + childCos * by), childAngle);
+		}
+	}
+
+	public Body getBody() {
+		return body;
+	}
+
+	/**
+	 * Push a part at its center of mass, as it would be pushed with a body of its own. Use this instead of pushing the
+	 * body, so the load on the joints is known.
+	 *
+	 * @param part
+	 * @param force
+	 *            in world coordinates
+	 */
+	public void applyForce(Part part, Vector2 force) {
+		int index = partIndices.get(part, -1);
+		forceX[index] += force.x;
+		forceY[index] += force.y;
+		body.applyForce(force, getPartCenter(part, body.getTransform(), tempVector), true);
+	}
+
+	// Get the center of mass of a part in world coordinates for a transform of the body
+	private Vector2 getPartCenter(Part part, Transform transform, Vector2 result) {
+		result.set(part.centerX, part.centerY).rotateRad(part.localAngle).add(part.localX, part.localY);
+		return transform.mul(result);
+	}
+
+	/**
+	 * Remember the state of the body before a physics step. Call right before each step.
+	 *
+	 * @param delta
+	 *            time step of the physics step
+	 */
+	public void prepareStep(float delta) {
+		this.delta = delta;
+		x = body.getPosition().x;
+		y = body.getPosition().y;
+		angle = body.getAngle();
+		velocityX = body.getLinearVelocity().x;
+		velocityY = body.getLinearVelocity().y;
+		angularVelocity = body.getAngularVelocity();
+		centerX = body.getWorldCenter().x;
+		centerY = body.getWorldCenter().y;
+	}
+
+	/**
+	 * Work out the load on every joint during the last step, and whether one came close enough to breaking that the
+	 * body has to be split. Call right after each step.
+	 *
+	 * @return whether the body has to be split
+	 */
+	public boolean finishStep() {
+		Transform transform = body.getTransform();
+		Vector2 velocity = body.getLinearVelocity();
+		float newVelocityX = velocity.x, newVelocityY = velocity.y;
+		float newAngularVelocity = body.getAngularVelocity();
+		float newCenterX = body.getWorldCenter().x, newCenterY = body.getWorldCenter().y;
+		float gravityX = world.getGravity().x * body.getGravityScale();
+		float gravityY = world.getGravity().y * body.getGravityScale();
+		float cos = (float) Math.cos(angle), sin = (float) Math.sin(angle);
+
+		// Per part the momentum gained that was not brought by contacts, forces or gravity, kept in the impulse arrays
+		for (int p = 0; p < parts.size; p++) {
+			Part part = parts.get(p);
+			float mass = masses.get(p);
+			Vector2 newCenter = getPartCenter(part, transform, tempVector);
+			float newOffsetX = newCenter.x - newCenterX, newOffsetY = newCenter.y - newCenterY;
+			// The offset before the step, turned back by the rotation of the step
+			float localX = transform.vals[Transform.COS] * newOffsetX + transform.vals[Transform.SIN] * newOffsetY;
+			float localY = -transform.vals[Transform.SIN] * newOffsetX + transform.vals[Transform.COS] * newOffsetY;
+			float offsetX = cos * localX - sin * localY, offsetY = sin * localX + cos * localY;
+			float gainedX = mass
+					* (newVelocityX - newAngularVelocity * newOffsetY - velocityX + angularVelocity * offsetY);
+			float gainedY = mass
+					* (newVelocityY + newAngularVelocity * newOffsetX - velocityY - angularVelocity * offsetX);
+			impulseX[p] = gainedX - impulseX[p] - (forceX[p] + gravityX * mass) * delta;
+			impulseY[p] = gainedY - impulseY[p] - (forceY[p] + gravityY * mass) * delta;
+		}
+
+		// The joint carries what the parts on its child side gained from the rest of the lander
+		load = 0;
+		for (int j = 0; j < subtrees.length; j++) {
+			int[] subtree = subtrees[j];
+			float loadX = 0, loadY = 0;
+			for (int i = 0; i < subtree.length; i++) {
+				loadX += impulseX[subtree[i]];
+				loadY += impulseY[subtree[i]];
+			}
+			// Scaled like StructuralIntegrity scales the impulses of joints
+			load = Math.max(load, (float) Math.sqrt(loadX * loadX + loadY * loadY) * delta / breakForces.get(j));
+		}
+
+		for (int p = 0; p < parts.size; p++) {
+			impulseX[p] = 0;
+			impulseY[p] = 0;
+			forceX[p] = 0;
+			forceY[p] = 0;
+		}
+		return load > SPLIT_LOAD;
+	}
+
+	/**
+	 * Get the highest load on a joint during the last step, as a fraction of the force it breaks at.
+	 *
+	 * @return
+	 */
+	public float getLoad() {
+		return load;
+	}
+
+	/**
+	 * Give every part its own body back, welded to the others, at the state from before the last step. Afterwards the
+	 * lander no longer has a compound body.
+	 */
+	public void split() {
+		float cos = (float) Math.cos(angle);
+		float sin = (float) Math.sin(angle);
+		for (int p = 0; p < lander.parts.size; p++) {
+			Part part = lander.parts.get(p);
+			if (part.body != body) {
+				continue;
+			}
+			float partX = x + cos * part.localX - sin * part.localY;
+			float partY = y + sin * part.localX + cos * part.localY;
+			float partAngle = angle + part.localAngle;
+			// Velocity of the body at the center of mass of the part
+			float partCos = (float) Math.cos(partAngle);
+			float partSin = (float) Math.sin(partAngle);
+			float offsetX = partX + partCos * part.centerX - partSin * part.centerY - centerX;
+			float offsetY = partY + partSin * part.centerX + partCos * part.centerY - centerY;
+
+			Body ownBody = part.ownBody;
+			ownBody.setTransform(partX, partY, partAngle);
+			ownBody.setLinearVelocity(velocityX - angularVelocity * offsetY, velocityY + angularVelocity * offsetX);
+			ownBody.setAngularVelocity(angularVelocity);
+			ownBody.setGravityScale(body.getGravityScale());
+			ownBody.setActive(true);
+			ownBody.setAwake(true);
+			part.body = ownBody;
+			part.ownBody = null;
+			part.compound = false;
+			part.localX = 0;
+			part.localY = 0;
+			part.localAngle = 0;
+		}
+
+		for (int j = 0; j < parents.size; j++) {
+			Part parent = parents.get(j);
+			Part child = children.get(j);
+			WeldJointDef jointDef = new WeldJointDef();
+			jointDef.bodyA = parent.body;
+			jointDef.bodyB = child.body;
+			jointDef.localAnchorA.set(anchors.get(j * 4), anchors.get(j * 4 + 1));
+			jointDef.localAnchorB.set(anchors.get(j * 4 + 2), anchors.get(j * 4 + 3));
+			jointDef.referenceAngle = referenceAngles.get(j);
+			jointDef.collideConnected = false;
+			Joint joint = world.createJoint(jointDef);
+			lander.integrity.add(joint, parent, child);
+		}
+
+		world.destroyBody(body);
+		body = null;
+		if (lander.compound == this) {
+			lander.compound = null;
+		}
+	}
+
+	@Override
+	public void beginContact(Contact contact) {
+		// Do nothing
+	}
+
+	@Override
+	public void endContact(Contact contact) {
+		// Do nothing
+	}
+
+	@Override
+	public void preSolve(Contact contact, Manifold oldManifold) {
+		// Do nothing
+	}
+
+	/**
+	 * Add up the impulses of all contact points per part.
+	 */
+	@Override
+	public void postSolve(Contact contact, ContactImpulse impulse) {
+		Fixture fixture;
+		float sign;
+		if (contact.getFixtureB().getBody() == body) {
+			fixture = contact.getFixtureB();
+			sign = 1;
+		} else if (contact.getFixtureA().getBody() == body) {
+			// The impulses push fixture B, and fixture A just as hard the other way
+			fixture = contact.getFixtureA();
+			sign = -1;
+		} else {
+			return;
+		}
+		int index = partIndices.get((Part) fixture.getUserData(), -1);
+		Vector2 normal = contact.getWorldManifold().getNormal();
+		float[] normalImpulses = impulse.getNormalImpulses();
+		float[] tangentImpulses = impulse.getTangentImpulses();
+		for (int i = 0; i < impulse.getCount(); i++) {
+			// The tangent is the normal turned clockwise
+			impulseX[index] += sign * (normalImpulses[i] * normal.x + tangentImpulses[i] * normal.y);
+			impulseY[index] += sign * (normalImpulses[i] * normal.y - tangentImpulses[i] * normal.x);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package dev.basvs.crashlander.lander;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.ObjectSet;
+import dev.basvs.crashlander.GameScreen;
+import dev.basvs.crashlander.lander.part.Part;
+import dev.basvs.crashlander.particle.ParticleManager;
+
+/**
+ * Looks after the parts that broke off landers, and after the wrecks of landers that were left behind. Debris that
+ * has nearly come to rest is put to sleep, so Box2D stops simulating it, sooner than Box2D would on its own. Debris
+ * too far away from the focus, normally the lander, or beyond the debris budget, oldest first, is removed from its
+ * lander, its particle generator and the world, and its part is handed back to the lander builder to build new
+ * landers from.
+ */
+public class DebrisManager {
+
+	// In world units, horizontally or vertically
+	public static final float DEFAULT_MAX_DISTANCE = 1000f;
+	public static final int DEFAULT_MAX_DEBRIS = 64;
+	// Debris slower than this in Box2D units for the rest time in seconds is put to sleep
+	public static final float REST_SPEED = 0.1f;
+	public static final float REST_ANGULAR_SPEED = 0.2f;
+	public static final float REST_TIME = 0.5f;
+
+	private LanderBuilder builder;
+	// Optional
+	private ParticleManager particleManager;
+
+	private float maxDistance = DEFAULT_MAX_DISTANCE;
+	private int maxDebris = DEFAULT_MAX_DEBRIS;
+
+	// Landers whose debris is tracked, and those of them that were left behind
+	private Array<Lander> landers = new Array<Lander>();
+	private Array<Lander> wrecks = new Array<Lander>();
+
+	// Debris from old to new, with the lander it came from and how long it has been at rest
+	private Array<Part> parts = new Array<Part>();
+	private Array<Lander> owners = new Array<Lander>();
+	private FloatArray restTimes = new FloatArray();
+	private ObjectSet<Part> tracked = new ObjectSet<Part>();
+
+	// Statistics
+	private long sleeps = 0, despawns = 0;
+
+	/**
+	 * @param builder
+	 *            receives the parts that are despawned
+	 * @param particleManager
+	 *            may be null if particles are not rendered
+	 */
+	public DebrisManager(LanderBuilder builder, ParticleManager particleManager) {
+		this.builder = builder;
+		this.particleManager = particleManager;
+	}
+
+	public float getMaxDistance() {
+		return maxDistance;
+	}
+
+	/**
+	 * Set the distance from the focus beyond which debris is despawned, horizontally or vertically, for example after
+	 * falling through the landscape.
+	 *
+	 * @param maxDistance
+	 *            in world units
+	 */
+	public void setMaxDistance(float maxDistance) {
+		this.maxDistance = maxDistance;
+	}
+
+	public int getMaxDebris() {
+		return maxDebris;
+	}
+
+	public void setMaxDebris(int maxDebris) {
+		this.maxDebris = maxDebris;
+	}
+
+	/**
+	 * Start tracking the parts that break off a lander.
+	 *
+	 * @param lander
+	 */
+	public void track(Lander lander) {
+		if (!landers.contains(lander, true)) {
+			landers.add(lander);
+		}
+	}
+
+	/**
+	 * Leave a lander behind: all of its parts become debris. Its parts must have bodies of their own.
+	 *
+	 * @param lander
+	 */
+	public void abandon(Lander lander) {
+		track(lander);
+		wrecks.add(lander);
+		for (int p = 0; p < lander.parts.size; p++) {
+			Part part = lander.parts.get(p);
+			part.active = false;
+			if (part.particleGen != null) {
+				part.particleGen.active = false;
+			}
+			if (!part.detached) {
+				part.detached = true;
+				lander.debris.add(part);
+			}
+		}
+	}
+
+	/**
+	 * Get the landers that were left behind and still have parts. The array must not be changed.
+	 *
+	 * @return
+	 */
+	public Array<Lander> getWrecks() {
+		return wrecks;
+	}
+
+	/**
+	 * Get all debris, from old to new. The array must not be changed.
+	 *
+	 * @return
+	 */
+	public Array<Part> getDebris() {
+		return parts;
+	}
+
+	/**
+	 * Track new debris, break overloaded joints of wrecks, put debris at rest to sleep and despawn debris that is too
+	 * far away or over budget. Call once after each physics step.
+	 *
+	 * @param delta
+	 *            time step of the physics step
+	 * @param focusX
+	 *            in world units
+	 * @param focusY
+	 *            in world units
+	 */
+	public void update(float delta, float focusX, float focusY) {
+		for (int l = 0; l < landers.size; l++) {
+			Lander lander = landers.get(l);
+			for (int d = 0; d < lander.debris.size; d++) {
+				Part part = lander.debris.get(d);
+				if (tracked.add(part)) {
+					parts.add(part);
+					owners.add(lander);
+					restTimes.add(0);
+				}
+			}
+		}
+		for (int w = 0; w < wrecks.size; w++) {
+			Lander wreck = wrecks.get(w);
+			if (wreck.integrity != null) {
+				wreck.integrity.update(delta);
+			}
+		}
+
+		for (int d = parts.size - 1; d >= 0; d--) {
+			Part part = parts.get(d);
+			if (Math.abs(part.getX() * GameScreen.BOX2D_TO_WORLD - focusX) > maxDistance
+					|| Math.abs(part.getY() * GameScreen.BOX2D_TO_WORLD - focusY) > maxDistance) {
+				despawn(d);
+			} else {
+				rest(d, part.body, delta);
+			}
+		}
+		while (parts.size > maxDebris) {
+			despawn(0);
+		}
+	}
+
+	// Put a part to sleep when it has been at rest long enough
+	private void rest(int index, Body body, float delta) {
+		if (!body.isAwake()) {
+			restTimes.set(index, 0);
+			return;
+		}
+		if (body.getLinearVelocity().len2() > REST_SPEED * REST_SPEED
+				|| Math.abs(body.getAngularVelocity()) > REST_ANGULAR_SPEED) {
+			restTimes.set(index, 0);
+			return;
+		}
+		float restTime = restTimes.get(index) + delta;
+		if (restTime >= REST_TIME) {
+			body.setAwake(false);
+			sleeps++;
+			restTime = 0;
+		}
+		restTimes.set(index, restTime);
+	}
+
+	private void despawn(int index) {
+		Part part = parts.removeIndex(index);
+		Lander owner = owners.removeIndex(index);
+		restTimes.removeIndex(index);
+		tracked.remove(part);
+
+		if (part.particleGen != null) {
+			part.particleGen.active = false;
+			if (particleManager != null) {
+				particleManager.remove(part.particleGen);
+			}
+		}
+		if (owner.integrity != null) {
+			owner.integrity.remove(part);
+		}
+		owner.remove(part);
+		builder.free(part);
+		despawns++;
+
+		if (owner.parts.size == 0 && wrecks.removeValue(owner, true)) {
+			landers.removeValue(owner, true);
+		}
+	}
+
+	/**
+	 * Get the number of debris parts put to sleep since the last reset.
+	 *
+	 * @return
+	 */
+	public long getSleeps() {
+		return sleeps;
+	}
+
+	public long getDespawns() {
+		return despawns;
+	}
+
+	public void resetStatistics() {
+		sleeps = 0;
+		despawns = 0;
+	}
+}
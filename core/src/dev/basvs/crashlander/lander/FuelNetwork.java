@@ -0,0 +1,183 @@
+package dev.basvs.crashlander.lander;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import dev.basvs.crashlander.lander.part.Part;
+
+/**
+ * The fuel lines of a lander compiled into routes. Each thruster gets the tanks it can draw from, in the order the
+ * fuel sources are searched: depth first, each source before its own sources. A thruster drains the first tank on its
+ * route that has fuel left, and as tanks never fill up again, a cursor per route skips the tanks that ran empty.
+ * Thrusters and tanks are numbered by their position in the lists the network was made from, so draining only loops
+ * over primitive arrays and always happens in the same order.
+ *
+ * Fuel only flows between parts whose joint is intact. When a joint breaks, the routes that went through it are
+ * compiled again.
+ */
+public class FuelNetwork implements StructuralIntegrity.BreakListener {
+
+	private Array<Part> thrusters, tanks;
+	// Optional, without it every fuel source is considered connected
+	private StructuralIntegrity integrity;
+
+	private ObjectIntMap<Part> tankIndices = new ObjectIntMap<Part>();
+	// Per thruster the tanks it can draw from, the first one that may have fuel, and every part the route passes
+	private int[][] routes;
+	private int[] cursors;
+	private Part[][] passes;
+
+	// Fuel of every tank, mirrored into the parts for the gauges
+	private float[] fuel;
+
+	private IntArray tempRoute = new IntArray();
+	private Array<Part> tempPasses = new Array<Part>();
+
+	// Statistics
+	private long routesCompiled = 0;
+
+	/**
+	 * Compile the routes of all thrusters.
+	 *
+	 * @param thrusters
+	 * @param tanks
+	 *            every tank a thruster might reach
+	 * @param integrity
+	 *            may be null
+	 */
+	public FuelNetwork(Array<Part> thrusters, Array<Part> tanks, StructuralIntegrity integrity) {
+		this.thrusters = thrusters;
+		this.tanks = tanks;
+		this.integrity = integrity;
+		fuel = new float[tanks.size];
+		for (int k = 0; k < tanks.size; k++) {
+			tankIndices.put(tanks.get(k), k);
+			fuel[k] = tanks.get(k).fuel;
+		}
+		routes = new int[thrusters.size][];
+		cursors = new int[thrusters.size];
+		passes = new Part[thrusters.size][];
+		for (int t = 0; t < thrusters.size; t++) {
+			compile(t);
+		}
+	}
+
+	/**
+	 * Drain fuel for a thruster from the tanks on its route, in order.
+	 *
+	 * @param thruster
+	 *            position of the thruster in the list the network was made from
+	 * @param amount
+	 * @return amount that could not be drawn because the route ran dry
+	 */
+	public float draw(int thruster, float amount) {
+		int[] route = routes[thruster];
+		int cursor = cursors[thruster];
+		while (amount > 0 && cursor < route.length) {
+			int tank = route[cursor];
+			if (fuel[tank] > amount) {
+				fuel[tank] -= amount;
+				amount = 0;
+			} else {
+				amount -= fuel[tank];
+				fuel[tank] = 0;
+				cursor++;
+			}
+			tanks.get(tank).fuel = fuel[tank];
+		}
+		cursors[thruster] = cursor;
+		return amount;
+	}
+
+	/**
+	 * Find the tank a thruster would draw from next.
+	 *
+	 * @param thruster
+	 * @return position of the tank in the list the network was made from, or -1 if the route ran dry
+	 */
+	public int findTank(int thruster) {
+		int[] route = routes[thruster];
+		int cursor = cursors[thruster];
+		while (cursor < route.length && fuel[route[cursor]] <= 0) {
+			cursor++;
+		}
+		cursors[thruster] = cursor;
+		return cursor < route.length ? route[cursor] : -1;
+	}
+
+	public float getFuel(int tank) {
+		return fuel[tank];
+	}
+
+	/**
+	 * Compile the routes that went through a broken joint again.
+	 */
+	@Override
+	public void jointBroken(Part parent, Part child) {
+		for (int t = 0; t < thrusters.size; t++) {
+			Part[] parts = passes[t];
+			boolean parentPassed = false, childPassed = false;
+			for (int p = 0; p < parts.length; p++) {
+				parentPassed |= parts[p] == parent;
+				childPassed |= parts[p] == child;
+			}
+			if (parentPassed && childPassed) {
+				compile(t);
+			}
+		}
+	}
+
+	private void compile(int thruster) {
+		tempRoute.clear();
+		tempPasses.clear();
+		Part part = thrusters.get(thruster);
+		tempPasses.add(part);
+		follow(part);
+		routes[thruster] = tempRoute.toArray();
+		passes[thruster] = tempPasses.toArray(Part.class);
+		cursors[thruster] = 0;
+		routesCompiled++;
+	}
+
+	private void follow(Part part) {
+		for (int s = 0; s < part.fuelSources.size; s++) {
+			Part source = part.fuelSources.get(s);
+			if (tempPasses.contains(source, true) || !isJoined(part, source)) {
+				continue;
+			}
+			tempPasses.add(source);
+			int tank = tankIndices.get(source, -1);
+			if (tank >= 0) {
+				tempRoute.add(tank);
+			}
+			follow(source);
+		}
+	}
+
+	private boolean isJoined(Part a, Part b) {
+		if (integrity == null) {
+			return true;
+		}
+		for (int j = 0; j < integrity.getJointCount(); j++) {
+			Part parent = integrity.getParent(j);
+			Part child = integrity.getChild(j);
+			if ((parent == a && child == b) || (parent == b && child == a)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the number of routes compiled since the last reset.
+	 *
+	 * @return
+	 */
+	public long getRoutesCompiled() {
+		return routesCompiled;
+	}
+
+	public void resetStatistics() {
+		routesCompiled = 0;
+	}
+}
@@ -1,29 +1,102 @@
 package dev.basvs.crashlander.lander;
 
 import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
 import dev.basvs.crashlander.GameScreen;
 import dev.basvs.crashlander.lander.design.LanderDesign;
 import dev.basvs.crashlander.lander.part.Part;
 
-public class Lander {
+public class Lander implements StructuralIntegrity.BreakListener {
 
 	public Part core;
 	public LanderDesign design;
+	// Null for landers that were not built from a design
+	public StructuralIntegrity integrity;
+	// Null for landers that were not built from a design
+	public FuelNetwork fuelNetwork;
+	// Null unless the parts share a single body
+	public CompoundBody compound;
 
-	public void teleport(float deltaX, float deltaY) {
+	// Every part in the order it was built, including those that broke off
+	public Array<Part> parts = new Array<Part>();
+	// The parts that do something, whether they are still attached or not
+	public Array<Part> thrusters = new Array<Part>();
+	public Array<Part> tanks = new Array<Part>();
+	public Array<Part> emitters = new Array<Part>();
+	// The parts that broke off, in the order they did
+	public Array<Part> debris = new Array<Part>();
+
+	/**
+	 * Register a new part of the lander.
+	 * 
+	 * @param part
+	 */
+	public void add(Part part) {
+		parts.add(part);
+		if (part.design.thruster != null) {
+			thrusters.add(part);
+		}
+		if (part.design.tank != null) {
+			tanks.add(part);
+		}
+		if (part.particleGen != null) {
+			emitters.add(part);
+		}
+	}
+
+	/**
+	 * Forget a part that is no longer used. It stays in the thrusters and tanks, as the fuel network knows them by
+	 * their position.
+	 * 
+	 * @param part
+	 */
+	public void remove(Part part) {
+		parts.removeValue(part, true);
+		emitters.removeValue(part, true);
+		debris.removeValue(part, true);
+	}
 
-		System.out.println("teleport " + (int) deltaX + " , " + (int) deltaY);
+	/**
+	 * Move the parts that are no longer connected to the core to the debris, after a joint broke.
+	 */
+	@Override
+	public void jointBroken(Part parent, Part child) {
+		if (!parent.detached && !child.detached) {
+			detach(child);
+		}
+	}
 
-		teleportBodyRecursive(core.body, deltaX * GameScreen.WORLD_TO_BOX2D, deltaY * GameScreen.WORLD_TO_BOX2D);
+	// Detach a part and everything still joined to it
+	private void detach(Part part) {
+		part.detached = true;
+		debris.add(part);
+		for (int j = 0; j < integrity.getJointCount(); j++) {
+			Part parent = integrity.getParent(j);
+			Part child = integrity.getChild(j);
+			if (parent == part && !child.detached) {
+				detach(child);
+			} else if (child == part && !parent.detached) {
+				detach(parent);
+			}
+		}
 	}
 
-	private void teleportBodyRecursive(Body body, float deltaX, float deltaY) {
-		body.setTransform(body.getPosition().x + deltaX, body.getPosition().y + deltaY, 0f);
-		int nAttach = body.getJointList().size;
-		for (int a = 0; a < nAttach; a++) {
-			Body other = body.getJointList().get(a).joint.getBodyB();
-			if (other != body) {
-				teleportBodyRecursive(other, deltaX, deltaY);
+	public void teleport(float deltaX, float deltaY) {
+		deltaX *= GameScreen.WORLD_TO_BOX2D;
+		deltaY *= GameScreen.WORLD_TO_BOX2D;
+		if (compound != null) {
+			Body body = compound.getBody();
+			body.setTransform(body.getPosition().x + deltaX, body.getPosition().y + deltaY, 0f);
+		}
+		for (int p = 0; p < parts.size; p++) {
+			Part part = parts.get(p);
+			if (!part.detached) {
+				if (!part.compound) {
+					Body body = part.body;
+					body.setTransform(body.getPosition().x + deltaX, body.getPosition().y + deltaY, 0f);
+				}
+				// Do not interpolate across the jump
+				part.storePreviousTransform();
 			}
 		}
 	}
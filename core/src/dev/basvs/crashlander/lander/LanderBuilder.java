@@ -1,18 +1,21 @@
 package dev.basvs.crashlander.lander;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.Joint;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.physics.box2d.joints.WeldJointDef;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Json;
-import dev.basvs.crashlander.CrashLander;
+import com.badlogic.gdx.utils.ObjectMap;
 import dev.basvs.crashlander.GameScreen;
 import dev.basvs.crashlander.lander.design.LanderDesign;
 import dev.basvs.crashlander.lander.design.LanderDesignAttach;
@@ -21,6 +24,7 @@ import dev.basvs.crashlander.lander.part.Part;
 import dev.basvs.crashlander.lander.part.PartDesign;
 import dev.basvs.crashlander.particle.ParticleGenerator;
 import dev.basvs.crashlander.particle.ParticleManager;
+import dev.basvs.crashlander.simulation.SimulationAssets;
 import dev.basvs.lib.math.MathUtils;
 
 import java.io.BufferedReader;
@@ -43,17 +47,35 @@ public class LanderBuilder {
 	private World world;
 	private ParticleManager particleManager;
 
-	public LanderBuilder(World world, ParticleManager particles) throws Exception {
+	// Whether landers are built as a single compound body
+	private boolean compound = false;
+
+	// Parts that are no longer used per design, with their bodies deactivated
+	private ObjectMap<PartDesign, Array<Part>> freeParts = new ObjectMap<PartDesign, Array<Part>>();
+
+	// Statistics
+	private long partsReused = 0;
+
+	/**
+	 * Create a lander builder. Parts get no textures if the part texture atlas is null, and no particle generators if
+	 * the particle manager is null.
+	 * 
+	 * @param world
+	 * @param particles
+	 * @param assets
+	 * @throws Exception
+	 */
+	public LanderBuilder(World world, ParticleManager particles, SimulationAssets assets) throws Exception {
 		this.world = world;
 		this.particleManager = particles;
 
-		partTextures = CrashLander.getInstance().getAssets().get("data/parts.atlas", TextureAtlas.class);
-		particleTextures = CrashLander.getInstance().getAssets().get("data/particles.atlas", TextureAtlas.class);
+		partTextures = assets.partTextures;
+		particleTextures = assets.particleTextures;
 
 		Json json = new Json();
 
 		// Load part designs
-		BufferedReader br = new BufferedReader(Gdx.files.internal("data/parts.json").reader());
+		BufferedReader br = new BufferedReader(assets.partDesigns.reader());
 		PartDesign[] partDesignArray = json.fromJson(PartDesign[].class, br);
 		br.close();
 		for (PartDesign pd : partDesignArray) {
@@ -65,10 +87,32 @@ public class LanderBuilder {
 		}
 	}
 
+	public boolean isCompound() {
+		return compound;
+	}
+
+	/**
+	 * Build landers as a single body with a fixture per part, which is split into a body per part when an impact
+	 * might break it, see {@link CompoundBody}. Otherwise every part gets its own body, welded to the others.
+	 * 
+	 * @param compound
+	 */
+	public void setCompound(boolean compound) {
+		this.compound = compound;
+	}
+
 	public Lander buildFromDesign(LanderDesign design, float xPos, float yPos) {
 		Lander lander = new Lander();
 		lander.design = design;
-		lander.core = buildPart(design.core, new Vector2(xPos, yPos));
+		lander.integrity = new StructuralIntegrity(world);
+		// The lander learns about broken joints before anyone else
+		lander.integrity.addListener(lander);
+		lander.core = buildPart(design.core, new Vector2(xPos, yPos), lander);
+		lander.fuelNetwork = new FuelNetwork(lander.thrusters, lander.tanks, lander.integrity);
+		lander.integrity.addListener(lander.fuelNetwork);
+		if (compound) {
+			lander.compound = new CompoundBody(world, lander);
+		}
 
 		/*
 		 * Part cockpit = buildPart("Cockpit", new Vector2(xPos, yPos)); lander.core =
@@ -113,19 +157,46 @@ public class LanderBuilder {
 
 	// public Part buildPart(String designName, Vector2 position) {
 	public Part buildPart(LanderDesignPart landerDesignPart, Vector2 position) {
+		return buildPart(landerDesignPart, position, null);
+	}
+
+	// Joints are added to the structural integrity of the lander, if one is given
+	private Part buildPart(LanderDesignPart landerDesignPart, Vector2 position, Lander lander) {
 		// TODO fix position thing
 		PartDesign design = partDesigns.get(landerDesignPart.partName);
 
+		Part part = obtain(design, position);
+		if (part == null) {
+			part = createPart(design, position);
+		}
+
+		part.control = landerDesignPart.control;
+		if (lander != null) {
+			lander.add(part);
+		}
+
+		for (LanderDesignAttach attach : landerDesignPart.attached) {
+			Part otherPart = buildPart(attach.otherPart, position, lander);
+			if (attach.fuelSource) {
+				otherPart.fuelSources.add(part);
+			}
+			Joint joint = attach(part, attach.attachPoint, otherPart, attach.otherAttachPoint, attach.attachAngle);
+			if (lander != null) {
+				lander.integrity.add(joint, part, otherPart);
+			}
+		}
+
+		return part;
+	}
+
+	private Part createPart(PartDesign design, Vector2 position) {
 		Part part = new Part();
 		part.design = design;
-		initBuild(part, design, partTextures.findRegion(design.textureName), position);
-
-		part.body.getFixtureList().get(0).getFilterData().categoryBits = COLLISION_CATEGORY_PARTS;
-		part.body.getFixtureList().get(0).getFilterData().maskBits = COLLISION_CATEGORY_WORLD;
+		initBuild(part, design, partTextures != null ? partTextures.findRegion(design.textureName) : null, position);
 
 		// TODO: implement light functionality
 
-		if (design.thruster != null) {
+		if (design.thruster != null && particleManager != null) {
 			ParticleGenerator particleGen = new ParticleGenerator();
 			particleGen.position = new Vector2(0, 0);
 			particleGen.velocity = new Vector2(0, 0);
@@ -144,20 +215,89 @@ public class LanderBuilder {
 			part.particleGen = particleGen;
 		}
 
-		part.control = landerDesignPart.control;
+		return part;
+	}
 
-		for (LanderDesignAttach attach : landerDesignPart.attached) {
-			Part otherPart = buildPart(attach.otherPart, position);
-			if (attach.fuelSource) {
-				otherPart.fuelSources.add(part);
-			}
-			attach(part, attach.attachPoint, otherPart, attach.otherAttachPoint, attach.attachAngle);
+	/**
+	 * Take back a part that is no longer used, so a part of the same design can be built from it later. The joints of
+	 * its body are destroyed and the body is deactivated until then. The part must have a body of its own, and must
+	 * have been removed from its lander and the particle manager.
+	 * 
+	 * @param part
+	 */
+	public void free(Part part) {
+		Body body = part.body;
+		while (body.getJointList().size > 0) {
+			world.destroyJoint(body.getJointList().get(0).joint);
+		}
+		body.setActive(false);
+		part.active = false;
+		Array<Part> parts = freeParts.get(part.design);
+		if (parts == null) {
+			parts = new Array<Part>();
+			freeParts.put(part.design, parts);
 		}
+		parts.add(part);
+	}
 
+	// Make a freed part of a design like new, or return null if there is none
+	private Part obtain(PartDesign design, Vector2 position) {
+		Array<Part> parts = freeParts.get(design);
+		if (parts == null || parts.size == 0) {
+			return null;
+		}
+		Part part = parts.pop();
+		Body body = part.body;
+		if (position == null) {
+			body.setTransform(0, 0, 0f);
+		} else {
+			body.setTransform(position, 0f);
+		}
+		body.setLinearVelocity(0, 0);
+		body.setAngularVelocity(0);
+		body.setGravityScale(1);
+		// A compound body keeps the body of the part deactivated until it is split
+		if (!compound) {
+			body.setActive(true);
+			body.setAwake(true);
+		}
+		part.storePreviousTransform();
+		part.active = false;
+		part.detached = false;
+		part.fuel = design.tank != null ? design.tank.fuel : 0;
+		part.fuelSources.clear();
+		if (part.particleGen != null) {
+			part.particleGen.active = false;
+			if (particleManager != null) {
+				particleManager.add(part.particleGen);
+			}
+		}
+		partsReused++;
 		return part;
 	}
 
-	public void attach(Part firstPart, int firstAttach, Part secondPart, int secondAttach, Angle angle) {
+	/**
+	 * Get the number of freed parts waiting to be built again.
+	 * 
+	 * @return
+	 */
+	public int getFreePartCount() {
+		int count = 0;
+		for (Array<Part> parts : freeParts.values()) {
+			count += parts.size;
+		}
+		return count;
+	}
+
+	public long getPartsReused() {
+		return partsReused;
+	}
+
+	public void resetStatistics() {
+		partsReused = 0;
+	}
+
+	public Joint attach(Part firstPart, int firstAttach, Part secondPart, int secondAttach, Angle angle) {
 		// Make Box2D joint
 		WeldJointDef jointDef = new WeldJointDef();
 		jointDef.bodyA = firstPart.body;
@@ -183,9 +323,10 @@ public class LanderBuilder {
 			break;
 		}
 		jointDef.collideConnected = false;
-		world.createJoint(jointDef);
+		Joint joint = world.createJoint(jointDef);
 
 		// TODO: position body b to correct place
+		return joint;
 	}
 
 	private void initBuild(Part part, PartDesign design, TextureRegion texture, Vector2 position) {
@@ -209,14 +350,39 @@ public class LanderBuilder {
 		part.body = world.createBody(bodyDef);
 		part.body.setUserData(part);
 		// Give body a shape
+		createFixture(part.body, design, 0, 0, 0);
+	}
+
+	/**
+	 * Give a body the shape of a part.
+	 * 
+	 * @param body
+	 * @param design
+	 * @param x
+	 *            position of the part within the body
+	 * @param y
+	 * @param angle
+	 *            angle of the part within the body
+	 * @return
+	 */
+	static Fixture createFixture(Body body, PartDesign design, float x, float y, float angle) {
+		Vector2[] vertices = design.shape.toArray(Vector2.class);
+		if (x != 0 || y != 0 || angle != 0) {
+			for (int v = 0; v < vertices.length; v++) {
+				vertices[v] = new Vector2(vertices[v]).rotateRad(angle).add(x, y);
+			}
+		}
 		FixtureDef fixtureDef = new FixtureDef();
 		PolygonShape polygonShape = new PolygonShape();
-		polygonShape.set((Vector2[]) design.shape.toArray(Vector2.class));
+		polygonShape.set(vertices);
 		fixtureDef.shape = polygonShape;
 		fixtureDef.density = 0.5f;
 		fixtureDef.friction = 0.9f;
 		fixtureDef.restitution = 0.25f;
-		part.body.createFixture(fixtureDef);
+		fixtureDef.filter.categoryBits = COLLISION_CATEGORY_PARTS;
+		fixtureDef.filter.maskBits = COLLISION_CATEGORY_WORLD;
+		Fixture fixture = body.createFixture(fixtureDef);
 		polygonShape.dispose();
+		return fixture;
 	}
 }
\ No newline at end of file
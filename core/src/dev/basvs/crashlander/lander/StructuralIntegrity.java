@@ -0,0 +1,195 @@
+package dev.basvs.crashlander.lander;
+
+import com.badlogic.gdx.physics.box2d.Joint;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import dev.basvs.crashlander.lander.part.Part;
+import dev.basvs.crashlander.lander.part.PartDesign;
+
+/**
+ * Keeps the joints of a lander together with the force each can take, and breaks those that are overloaded. All
+ * joints are checked in one pass over a flat list after the physics step, and the joints found overloaded are only
+ * destroyed after the pass, followed by a break event to every listener.
+ */
+public class StructuralIntegrity {
+
+	// Force in Box2D units at which a joint breaks, unless the part designs say otherwise
+	public static final float DEFAULT_BREAK_FORCE = 0.003f;
+
+	/**
+	 * Is told about joints that broke.
+	 */
+	public interface BreakListener {
+
+		/**
+		 * Called after a joint was destroyed.
+		 * 
+		 * @param parent
+		 *            part on the side of the core when the lander was built
+		 * @param child
+		 */
+		void jointBroken(Part parent, Part child);
+	}
+
+	private World world;
+
+	// Joints in no particular order, with the parts they connect and the force they can take
+	private Array<Joint> joints = new Array<Joint>(false, 16);
+	private Array<Part> parents = new Array<Part>(false, 16);
+	private Array<Part> children = new Array<Part>(false, 16);
+	private FloatArray breakForces = new FloatArray(false, 16);
+
+	// Joints found overloaded by the last check, in ascending order
+	private IntArray overloaded = new IntArray();
+
+	private Array<BreakListener> listeners = new Array<BreakListener>();
+
+	// Statistics
+	private long checks = 0, breaks = 0;
+
+	public StructuralIntegrity(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Get the force at which joints of a part break.
+	 * 
+	 * @param design
+	 * @return force in Box2D units
+	 */
+	public static float getBreakForce(PartDesign design) {
+		return design.breakForce > 0 ? design.breakForce : DEFAULT_BREAK_FORCE;
+	}
+
+	/**
+	 * Add a joint, which breaks at the force the weakest of both parts can take.
+	 * 
+	 * @param joint
+	 * @param parent
+	 * @param child
+	 */
+	public void add(Joint joint, Part parent, Part child) {
+		joints.add(joint);
+		parents.add(parent);
+		children.add(child);
+		breakForces.add(Math.min(getBreakForce(parent.design), getBreakForce(child.design)));
+	}
+
+	/**
+	 * Forget the joints of a part, for example before its body is destroyed, which destroys its joints as well.
+	 * 
+	 * @param part
+	 */
+	public void remove(Part part) {
+		for (int j = joints.size - 1; j >= 0; j--) {
+			if (parents.get(j) == part || children.get(j) == part) {
+				removeIndex(j);
+			}
+		}
+	}
+
+	public void addListener(BreakListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(BreakListener listener) {
+		listeners.removeValue(listener, true);
+	}
+
+	/**
+	 * Check all joints and break the overloaded ones. Call once after each physics step.
+	 * 
+	 * @param delta
+	 *            time step of the physics step
+	 * @return number of joints that broke
+	 */
+	public int update(float delta) {
+		check(delta);
+		return applyBreaks();
+	}
+
+	/**
+	 * Find the overloaded joints without changing anything.
+	 * 
+	 * @param delta
+	 *            time step of the physics step
+	 * @return number of overloaded joints
+	 */
+	public int check(float delta) {
+		overloaded.clear();
+		for (int j = 0; j < joints.size; j++) {
+			// Scaling by -delta instead of its inverse gives the impulse, which the break forces were tuned for
+			if (joints.get(j).getReactionForce(-delta).len() > breakForces.get(j)) {
+				overloaded.add(j);
+			}
+		}
+		checks += joints.size;
+		return overloaded.size;
+	}
+
+	/**
+	 * Destroy the joints found overloaded by the last check and tell the listeners.
+	 * 
+	 * @return number of joints that broke
+	 */
+	public int applyBreaks() {
+		int count = overloaded.size;
+		// Remove from the back, so the joints moved into removed slots were not overloaded
+		for (int o = count - 1; o >= 0; o--) {
+			int j = overloaded.get(o);
+			Part parent = parents.get(j);
+			Part child = children.get(j);
+			world.destroyJoint(joints.get(j));
+			removeIndex(j);
+			breaks++;
+			for (int l = 0; l < listeners.size; l++) {
+				listeners.get(l).jointBroken(parent, child);
+			}
+		}
+		overloaded.clear();
+		return count;
+	}
+
+	private void removeIndex(int j) {
+		joints.removeIndex(j);
+		parents.removeIndex(j);
+		children.removeIndex(j);
+		breakForces.removeIndex(j);
+	}
+
+	public int getJointCount() {
+		return joints.size;
+	}
+
+	public Joint getJoint(int index) {
+		return joints.get(index);
+	}
+
+	public Part getParent(int index) {
+		return parents.get(index);
+	}
+
+	public Part getChild(int index) {
+		return children.get(index);
+	}
+
+	/**
+	 * Get the number of joint checks since the last reset.
+	 * 
+	 * @return
+	 */
+	public long getChecks() {
+		return checks;
+	}
+
+	public long getBreaks() {
+		return breaks;
+	}
+
+	public void resetStatistics() {
+		checks = 0;
+		breaks = 0;
+	}
+}
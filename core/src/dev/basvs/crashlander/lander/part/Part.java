@@ -1,6 +1,7 @@
 package dev.basvs.crashlander.lander.part;
 
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.utils.Array;
 import dev.basvs.crashlander.particle.ParticleGenerator;
@@ -12,6 +13,17 @@ public class Part {
 	public Body body;
 	public float textureDeltaX, textureDeltaY;
 
+	// Transform of the part within its body, which is only not the identity when parts share a compound body
+	public float localX, localY, localAngle;
+	public boolean compound;
+	// Center of mass in part coordinates
+	public float centerX, centerY;
+	// Body of its own while the part is in a compound body, deactivated until the compound body is split
+	public Body ownBody;
+
+	// Part transform before the last physics step, for interpolated rendering
+	public float previousX, previousY, previousAngle;
+
 	public boolean active;
 	public float fuel;
 
@@ -21,4 +33,72 @@ public class Part {
 	public Array<Part> fuelSources = new Array<>();
 
 	public ParticleGenerator particleGen;
+
+	// Whether the part broke off its lander
+	public boolean detached;
+
+	/**
+	 * Get the x position of the part in Box2D units.
+	 * 
+	 * @return
+	 */
+	public float getX() {
+		if (!compound) {
+			return body.getPosition().x;
+		}
+		float angle = body.getAngle();
+		return body.getPosition().x + (float) Math.cos(angle) * localX - (float) Math.sin(angle) * localY;
+	}
+
+	/**
+	 * Get the y position of the part in Box2D units.
+	 * 
+	 * @return
+	 */
+	public float getY() {
+		if (!compound) {
+			return body.getPosition().y;
+		}
+		float angle = body.getAngle();
+		return body.getPosition().y + (float) Math.sin(angle) * localX + (float) Math.cos(angle) * localY;
+	}
+
+	public float getAngle() {
+		return body.getAngle() + localAngle;
+	}
+
+	/**
+	 * Turn a vector in part coordinates into world coordinates.
+	 * 
+	 * @param local
+	 * @param result
+	 * @return the result
+	 */
+	public Vector2 getWorldVector(Vector2 local, Vector2 result) {
+		if (!compound) {
+			return result.set(body.getWorldVector(local));
+		}
+		return result.set(local).rotateRad(getAngle());
+	}
+
+	/**
+	 * Remember the current part transform as the previous one, to interpolate from until the next physics step.
+	 */
+	public void storePreviousTransform() {
+		previousX = getX();
+		previousY = getY();
+		previousAngle = getAngle();
+	}
+
+	public float getInterpolatedX(float alpha) {
+		return previousX + (getX() - previousX) * alpha;
+	}
+
+	public float getInterpolatedY(float alpha) {
+		return previousY + (getY() - previousY) * alpha;
+	}
+
+	public float getInterpolatedAngle(float alpha) {
+		return previousAngle + (getAngle() - previousAngle) * alpha;
+	}
 }
@@ -13,6 +13,8 @@ public class PartDesign {
 	public boolean core;
 
 	public float mass;
+	// Force in Box2D units at which the joints of the part break, zero for the default
+	public float breakForce;
 
 	public Tank tank;
 	public boolean fuelTransmitter;
@@ -0,0 +1,22 @@
+package dev.basvs.crashlander.particle;
+
+/**
+ * What to do with a new particle when the particle budget is used up.
+ */
+public enum EvictionPolicy {
+
+	/**
+	 * Replace the particle that was spawned first. Keeps the area around the emitters dense.
+	 */
+	ReplaceOldest,
+
+	/**
+	 * Replace the particle with the least life left, which is usually nearly invisible already.
+	 */
+	ReplaceNearestDeath,
+
+	/**
+	 * Do not spawn the new particle.
+	 */
+	DropSpawn
+}
@@ -4,6 +4,10 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 
+/**
+ * Fires particles every fireInterval seconds while active. If several particles are due in one update they are all
+ * spawned, spread out over the update.
+ */
 public class ParticleGenerator {
 
 	public boolean active;
@@ -14,5 +18,7 @@ public class ParticleGenerator {
 	public float lifeMinimum, lifeMaximum;
 	public float speedMinimum, speedMaximum;
 	public float fireInterval, timeUntilFire;
+	// Maximum number of particles per second, zero for no limit
+	public float maxRate;
 
 }
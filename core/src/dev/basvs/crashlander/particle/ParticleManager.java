@@ -1,21 +1,80 @@
 package dev.basvs.crashlander.particle;
 
+import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Disposable;
 import dev.basvs.crashlander.GameScreen;
+import dev.basvs.lib.graphics.CameraBounds;
 import dev.basvs.lib.math.MathUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
-public class ParticleManager {
+/**
+ * Keeps all particles in parallel primitive arrays. Living particles are always packed at the start of the arrays,
+ * dead particles are replaced by the last living one, so updating and drawing only walk the living particles in
+ * linear memory. The end of the living range doubles as the free list, so spawning a particle takes constant time
+ * until the particle budget is used up, after which the eviction policy decides.
+ *
+ * To find the particle to replace without scanning, the living particles are kept in an eviction index for the
+ * current policy: a ring in spawn order for {@link EvictionPolicy#ReplaceOldest}, and a binary min heap on life left
+ * for {@link EvictionPolicy#ReplaceNearestDeath}. All particles lose the same life per update, so the heap stays in
+ * order without being touched by the update.
+ */
+public class ParticleManager implements Disposable {
+
+	public static final int INITIAL_CAPACITY = 500;
+	public static final int DEFAULT_MAX_PARTICLES = 5000;
+	public static final EvictionPolicy DEFAULT_EVICTION_POLICY = EvictionPolicy.ReplaceOldest;
+	// Integrating on multiple threads only pays off far above the default budget, so it is off by default
+	public static final int DEFAULT_PARALLEL_THRESHOLD = Integer.MAX_VALUE;
+	// Number of particles a single task integrates
+	private static final int PARALLEL_CHUNK_SIZE = 8192;
 
 	private List<ParticleGenerator> generators = new ArrayList<ParticleGenerator>();
-	private List<Particle> particles = new ArrayList<Particle>();
+
+	// Particle data, living particles are in [0, count)
+	private int count = 0;
+	private float[] positionX, positionY;
+	private float[] velocityX, velocityY;
+	private float[] lifeLeft, lifeTotal;
+	// Colors as RGBA8888
+	private int[] startColor, endColor;
+	private TextureRegion[] texture;
+
+	// Eviction index: particles in the order of the policy, and the position of each particle in it. The ring holds -1
+	// for removed particles, and always starts with a living one.
+	private int[] evictionOrder;
+	private int[] evictionIndex;
+	private int orderStart = 0, orderSize = 0;
+
+	// Budget
+	private int maxParticles;
+	private EvictionPolicy evictionPolicy = DEFAULT_EVICTION_POLICY;
+
+	// Integrate on multiple threads when there are at least this many particles
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	private ForkJoinPool pool;
+	// Whether the pool was created here, and has to be shut down here
+	private boolean ownsPool = false;
+
+	// Statistics
+	private long spawns = 0, evictions = 0, drops = 0;
 
 	public ParticleManager() {
-		for (int p = 0; p < 500; p++) {
-			particles.add(new Particle());
-		}
+		this(DEFAULT_MAX_PARTICLES);
+	}
+
+	/**
+	 * @param maxParticles
+	 *            the maximum number of living particles
+	 */
+	public ParticleManager(int maxParticles) {
+		this.maxParticles = maxParticles;
+		allocate(Math.min(INITIAL_CAPACITY, maxParticles));
 	}
 
 	public void add(ParticleGenerator generator) {
@@ -26,73 +85,526 @@ public class ParticleManager {
 		generators.remove(generator);
 	}
 
+	/**
+	 * Get the number of living particles.
+	 *
+	 * @return
+	 */
+	public int getParticleCount() {
+		return count;
+	}
+
+	public int getMaxParticles() {
+		return maxParticles;
+	}
+
+	/**
+	 * Set the maximum number of living particles. If more particles are alive, the most recently added ones are
+	 * removed.
+	 *
+	 * @param maxParticles
+	 */
+	public void setMaxParticles(int maxParticles) {
+		this.maxParticles = maxParticles;
+		while (count > maxParticles) {
+			unindex(count - 1);
+			texture[--count] = null;
+		}
+	}
+
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Set the number of living particles from which the particles are integrated on multiple threads. Below it
+	 * splitting up the work costs more than it saves, which is somewhere around 50000 particles, so raise the maximum
+	 * number of particles as well.
+	 *
+	 * @param parallelThreshold
+	 *            Integer.MAX_VALUE, the default, to always stay on the calling thread
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * Set the pool to integrate particles with when there are many. By default a pool with a thread per core is
+	 * created when first needed. A pool set here is not shut down by {@link #dispose()}.
+	 *
+	 * @param pool
+	 */
+	public void setPool(ForkJoinPool pool) {
+		if (ownsPool) {
+			this.pool.shutdown();
+			ownsPool = false;
+		}
+		this.pool = pool;
+	}
+
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+
+	/**
+	 * Set the eviction policy. The eviction index is rebuilt for the new policy, which takes linear time. The spawn
+	 * order of the particles already alive is not known, so they are taken in the order they are stored.
+	 *
+	 * @param evictionPolicy
+	 */
+	public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+		if (evictionPolicy == this.evictionPolicy) {
+			return;
+		}
+		this.evictionPolicy = evictionPolicy;
+		orderStart = 0;
+		orderSize = 0;
+		for (int p = 0; p < count; p++) {
+			index(p);
+		}
+	}
+
+	/**
+	 * Get the number of particles the arrays currently have room for. The arrays grow up to the maximum number of
+	 * particles, but do not shrink when the maximum is lowered, so this may exceed the current maximum.
+	 *
+	 * @return
+	 */
+	public int getPoolSize() {
+		return lifeLeft.length;
+	}
+
+	/**
+	 * Get the number of particles spawned since the last reset, including those that replaced another particle.
+	 *
+	 * @return
+	 */
+	public long getSpawns() {
+		return spawns;
+	}
+
+	/**
+	 * Get the number of living particles replaced by a new one since the last reset.
+	 *
+	 * @return
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Get the number of particles not spawned because the budget was used up since the last reset.
+	 *
+	 * @return
+	 */
+	public long getDrops() {
+		return drops;
+	}
+
+	public void resetStatistics() {
+		spawns = 0;
+		evictions = 0;
+		drops = 0;
+	}
+
 	public void update(float delta) {
-		// Update generators
+		// Update particles, then remove the dead ones on this thread so the order does not depend on the threads used
+		if (count >= parallelThreshold) {
+			if (pool == null) {
+				pool = new ForkJoinPool();
+				ownsPool = true;
+			}
+			pool.invoke(new IntegrateTask(0, count, delta));
+		} else {
+			integrate(0, count, delta);
+		}
+		int p = 0;
+		while (p < count) {
+			if (lifeLeft[p] > 0f) {
+				p++;
+			} else {
+				// The last particle moves here and is checked next
+				remove(p);
+			}
+		}
+
+		// Update generators after the particles, new particles are placed where they would be at the end of the update
 		for (int g = 0; g < generators.size(); g++) {
 			ParticleGenerator generator = generators.get(g);
 			if (generator.active) {
-				generator.timeUntilFire -= delta;
-				if (generator.timeUntilFire <= 0f) {
-					Particle particle = getParticle();
-					particle.texture = generator.texture[MathUtils.randomInt(generator.texture.length)];
-					particle.startColor.set(generator.startColor);
-					particle.endColor.set(generator.endColor);
-					particle.position.set(generator.position);
-					particle.lifeTotal = generator.lifeMinimum + MathUtils.randomFloat()
-							* (generator.lifeMaximum - generator.lifeMinimum);
-					particle.lifeLeft = particle.lifeTotal;
-					particle.velocity.set(0, generator.speedMinimum + MathUtils.randomFloat()
-							* (generator.speedMaximum - generator.speedMinimum));
-					particle.velocity.rotate((MathUtils.PI + generator.angle + (MathUtils.randomFloat() - 0.5f)
-							* generator.angleSpread)
-							* MathUtils.RADIANS_TO_DEGREES);
-					particle.velocity.add(generator.velocity);
-					generator.timeUntilFire = generator.fireInterval;
-				}
+				emit(generator, delta);
 			}
 		}
+	}
+
+	private void integrate(int from, int to, float delta) {
+		for (int p = from; p < to; p++) {
+			lifeLeft[p] -= delta;
+			positionX[p] += velocityX[p] * delta;
+			positionY[p] += velocityY[p] * delta;
+		}
+	}
+
+	/**
+	 * Integrates a range of particles, split in halves until the parts are small enough.
+	 */
+	private class IntegrateTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+		private final float delta;
+
+		public IntegrateTask(int from, int to, float delta) {
+			this.from = from;
+			this.to = to;
+			this.delta = delta;
+		}
 
-		// Update particles
-		int pCount = particles.size();
-		for (int p = 0; p < pCount; p++) {
-			Particle prt = particles.get(p);
-			if (prt.lifeLeft > 0f) {
-				prt.lifeLeft -= delta;
-				prt.position.add(prt.velocity.x * delta, prt.velocity.y * delta);
-				//prt.velocity.scl(Math.max(0, 1f - 10f * delta));
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_CHUNK_SIZE) {
+				integrate(from, to, delta);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new IntegrateTask(from, middle, delta), new IntegrateTask(middle, to, delta));
 			}
 		}
 	}
 
-	private Particle getParticle() {
-		Particle particle = null;
-		int pCount = particles.size();
-		for (int p = 0; p < pCount; p++) {
-			Particle prt = particles.get(p);
-			if (prt.lifeLeft <= 0) {
-				particle = prt;
+	/**
+	 * Spawn every particle a generator fired during the update, each as if it was fired at its own moment within the
+	 * update and has lived since then.
+	 *
+	 * @param generator
+	 * @param delta
+	 */
+	private void emit(ParticleGenerator generator, float delta) {
+		float interval = generator.fireInterval;
+		if (generator.maxRate > 0f) {
+			interval = Math.max(interval, 1f / generator.maxRate);
+		}
+		generator.timeUntilFire -= delta;
+		if (generator.timeUntilFire > 0f) {
+			return;
+		}
+		if (interval <= 0f) {
+			// Fire once per update
+			spawn(generator, 0f, delta);
+			generator.timeUntilFire = 0f;
+			return;
+		}
+		// Particles fired longer ago than they can live would already be dead, skip them
+		float age = -generator.timeUntilFire;
+		if (age >= generator.lifeMaximum) {
+			age -= (int) ((age - generator.lifeMaximum) / interval + 1) * interval;
+		}
+		while (age >= 0f) {
+			spawn(generator, age, delta);
+			age -= interval;
+		}
+		generator.timeUntilFire = -age;
+	}
+
+	// Spawn a particle fired by the generator the given number of seconds before the end of the update
+	private void spawn(ParticleGenerator generator, float age, float delta) {
+		float life = generator.lifeMinimum + MathUtils.randomFloat() * (generator.lifeMaximum - generator.lifeMinimum);
+		if (age >= life) {
+			return;
+		}
+		float speed = generator.speedMinimum + MathUtils.randomFloat()
+				* (generator.speedMaximum - generator.speedMinimum);
+		float angle = MathUtils.PI + generator.angle + (MathUtils.randomFloat() - 0.5f) * generator.angleSpread;
+		// Speed points along the y axis before rotating
+		float vx = generator.velocity.x - speed * MathUtils.sin(angle);
+		float vy = generator.velocity.y + speed * MathUtils.cos(angle);
+		// The generator position is the one at the start of the update, move it forward to the moment of firing
+		float fired = Math.max(delta - age, 0f);
+		float x = generator.position.x + generator.velocity.x * fired + vx * age;
+		float y = generator.position.y + generator.velocity.y * fired + vy * age;
+		spawn(x, y, vx, vy, life - age, generator.texture[MathUtils.randomInt(generator.texture.length)],
+				Color.rgba8888(generator.startColor), Color.rgba8888(generator.endColor));
+	}
+
+	/**
+	 * Add a living particle, or replace one according to the eviction policy if the budget is used up.
+	 *
+	 * @return the index of the particle, or -1 if it was dropped
+	 */
+	int spawn(float x, float y, float vx, float vy, float life, TextureRegion region, int start, int end) {
+		int p;
+		if (count < maxParticles) {
+			if (count == lifeLeft.length) {
+				// Empty arrays, for example after starting with no budget, grow to the initial capacity
+				allocate(Math.min(Math.max(count * 2, INITIAL_CAPACITY), maxParticles));
+			}
+			p = count++;
+		} else {
+			p = findEvictable();
+			if (p < 0) {
+				drops++;
+				return -1;
+			}
+			unindex(p);
+			evictions++;
+		}
+		spawns++;
+		positionX[p] = x;
+		positionY[p] = y;
+		velocityX[p] = vx;
+		velocityY[p] = vy;
+		lifeLeft[p] = life;
+		lifeTotal[p] = life;
+		startColor[p] = start;
+		endColor[p] = end;
+		texture[p] = region;
+		index(p);
+		return p;
+	}
+
+	// Find the particle to replace, only called when the budget is used up
+	private int findEvictable() {
+		if (count == 0) {
+			return -1;
+		}
+		switch (evictionPolicy) {
+		case ReplaceOldest:
+			return evictionOrder[orderStart];
+		case ReplaceNearestDeath:
+			return evictionOrder[0];
+		default:
+			return -1;
+		}
+	}
+
+	// Add a particle to the eviction index, after its life is set
+	private void index(int p) {
+		switch (evictionPolicy) {
+		case ReplaceOldest:
+			if (orderSize == evictionOrder.length) {
+				compactRing(evictionOrder.length);
+			}
+			int position = (orderStart + orderSize) % evictionOrder.length;
+			evictionOrder[position] = p;
+			evictionIndex[p] = position;
+			orderSize++;
+			break;
+		case ReplaceNearestDeath:
+			evictionOrder[orderSize] = p;
+			evictionIndex[p] = orderSize;
+			siftUp(orderSize++);
+			break;
+		default:
+			break;
+		}
+	}
+
+	// Remove a particle from the eviction index
+	private void unindex(int p) {
+		int position = evictionIndex[p];
+		switch (evictionPolicy) {
+		case ReplaceOldest:
+			evictionOrder[position] = -1;
+			while (orderSize > 0 && evictionOrder[orderStart] < 0) {
+				orderStart = (orderStart + 1) % evictionOrder.length;
+				orderSize--;
+			}
+			break;
+		case ReplaceNearestDeath:
+			int last = evictionOrder[--orderSize];
+			if (position < orderSize) {
+				evictionOrder[position] = last;
+				evictionIndex[last] = position;
+				siftDown(position);
+				siftUp(evictionIndex[last]);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	// Move the living particles in the ring to the start of a ring with the given capacity, which they must fit
+	private void compactRing(int capacity) {
+		int[] order = new int[capacity];
+		int size = 0;
+		for (int i = 0; i < orderSize; i++) {
+			int p = evictionOrder[(orderStart + i) % evictionOrder.length];
+			if (p >= 0) {
+				order[size] = p;
+				evictionIndex[p] = size++;
+			}
+		}
+		evictionOrder = order;
+		orderStart = 0;
+		orderSize = size;
+	}
+
+	private void siftUp(int position) {
+		int p = evictionOrder[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			int q = evictionOrder[parent];
+			if (lifeLeft[q] <= lifeLeft[p]) {
+				break;
+			}
+			evictionOrder[position] = q;
+			evictionIndex[q] = position;
+			position = parent;
+		}
+		evictionOrder[position] = p;
+		evictionIndex[p] = position;
+	}
+
+	private void siftDown(int position) {
+		int p = evictionOrder[position];
+		while (true) {
+			int child = position * 2 + 1;
+			if (child >= orderSize) {
+				break;
+			}
+			if (child + 1 < orderSize && lifeLeft[evictionOrder[child + 1]] < lifeLeft[evictionOrder[child]]) {
+				child++;
+			}
+			int q = evictionOrder[child];
+			if (lifeLeft[p] <= lifeLeft[q]) {
 				break;
 			}
+			evictionOrder[position] = q;
+			evictionIndex[q] = position;
+			position = child;
 		}
-		if (particle == null) {
-			particle = new Particle();
-			particles.add(particle);
+		evictionOrder[position] = p;
+		evictionIndex[p] = position;
+	}
+
+	/**
+	 * Remove a particle by moving the last living particle into its place.
+	 *
+	 * @param p
+	 */
+	void remove(int p) {
+		unindex(p);
+		int last = --count;
+		if (p != last && evictionPolicy != EvictionPolicy.DropSpawn) {
+			// The last particle keeps its place in the eviction index
+			evictionIndex[p] = evictionIndex[last];
+			evictionOrder[evictionIndex[p]] = p;
 		}
-		return particle;
+		positionX[p] = positionX[last];
+		positionY[p] = positionY[last];
+		velocityX[p] = velocityX[last];
+		velocityY[p] = velocityY[last];
+		lifeLeft[p] = lifeLeft[last];
+		lifeTotal[p] = lifeTotal[last];
+		startColor[p] = startColor[last];
+		endColor[p] = endColor[last];
+		texture[p] = texture[last];
+		texture[last] = null;
 	}
 
-	public void render(SpriteBatch batch) {
-		int pCount = particles.size();
-		for (int p = 0; p < pCount; p++) {
-			Particle prt = particles.get(p);
-			if (prt.lifeLeft > 0f) {
-				float remaining = prt.lifeLeft / prt.lifeTotal;
-				batch.setColor(prt.startColor.r * remaining + prt.endColor.r * (1f - remaining), prt.startColor.g
-						* remaining + prt.endColor.g * (1f - remaining), prt.startColor.b * remaining + prt.endColor.b
-						* (1f - remaining), prt.startColor.a * remaining + prt.endColor.a * (1f - remaining));
-				batch.draw(prt.texture, prt.position.x * GameScreen.BOX2D_TO_RENDER - prt.texture.getRegionWidth() / 2,
-						prt.position.y * GameScreen.BOX2D_TO_RENDER - prt.texture.getRegionHeight() / 2);
+	private void allocate(int capacity) {
+		positionX = grow(positionX, capacity);
+		positionY = grow(positionY, capacity);
+		velocityX = grow(velocityX, capacity);
+		velocityY = grow(velocityY, capacity);
+		lifeLeft = grow(lifeLeft, capacity);
+		lifeTotal = grow(lifeTotal, capacity);
+		int[] newStartColor = new int[capacity];
+		int[] newEndColor = new int[capacity];
+		TextureRegion[] newTexture = new TextureRegion[capacity];
+		if (texture != null) {
+			System.arraycopy(startColor, 0, newStartColor, 0, count);
+			System.arraycopy(endColor, 0, newEndColor, 0, count);
+			System.arraycopy(texture, 0, newTexture, 0, count);
+		}
+		startColor = newStartColor;
+		endColor = newEndColor;
+		texture = newTexture;
+
+		int[] newEvictionIndex = new int[capacity];
+		if (evictionIndex != null) {
+			System.arraycopy(evictionIndex, 0, newEvictionIndex, 0, count);
+		}
+		evictionIndex = newEvictionIndex;
+		// Room for the ring to hold as many removed particles as living ones before it is compacted
+		if (evictionOrder == null) {
+			evictionOrder = new int[capacity * 2];
+		} else if (evictionPolicy == EvictionPolicy.ReplaceOldest) {
+			compactRing(capacity * 2);
+		} else {
+			int[] newEvictionOrder = new int[capacity * 2];
+			System.arraycopy(evictionOrder, 0, newEvictionOrder, 0, orderSize);
+			evictionOrder = newEvictionOrder;
+		}
+	}
+
+	private float[] grow(float[] array, int capacity) {
+		float[] newArray = new float[capacity];
+		if (array != null) {
+			System.arraycopy(array, 0, newArray, 0, count);
+		}
+		return newArray;
+	}
+
+	/**
+	 * Render all living particles.
+	 *
+	 * @param batch
+	 * @param timeOffset
+	 *            seconds to move each particle along its velocity before drawing, usually zero or negative to draw
+	 *            particles between the previous and the current update
+	 */
+	public void render(SpriteBatch batch, float timeOffset) {
+		render(batch, timeOffset, null);
+	}
+
+	/**
+	 * Render the living particles within the bounds.
+	 *
+	 * @param batch
+	 * @param timeOffset
+	 *            see {@link #render(SpriteBatch, float)}
+	 * @param bounds
+	 *            in Box2D units, or null to render all particles
+	 */
+	public void render(SpriteBatch batch, float timeOffset, CameraBounds bounds) {
+		for (int p = 0; p < count; p++) {
+			TextureRegion region = texture[p];
+			float x = positionX[p] + velocityX[p] * timeOffset;
+			float y = positionY[p] + velocityY[p] * timeOffset;
+			if (bounds != null
+					&& !bounds.isVisible(x, y, region.getRegionWidth() / 2 * GameScreen.RENDER_TO_BOX2D,
+							region.getRegionHeight() / 2 * GameScreen.RENDER_TO_BOX2D)) {
+				continue;
 			}
+			float remaining = lifeLeft[p] / lifeTotal[p];
+			float passed = 1f - remaining;
+			int start = startColor[p];
+			int end = endColor[p];
+			batch.setColor(channel(start, 24) * remaining + channel(end, 24) * passed, channel(start, 16)
+					* remaining + channel(end, 16) * passed, channel(start, 8) * remaining + channel(end, 8)
+					* passed, channel(start, 0) * remaining + channel(end, 0) * passed);
+			batch.draw(region, x * GameScreen.BOX2D_TO_RENDER - region.getRegionWidth() / 2, y
+					* GameScreen.BOX2D_TO_RENDER - region.getRegionHeight() / 2);
+		}
+	}
+
+	/**
+	 * Shut down the pool if it was created by this manager. A new one is created if particles are integrated on
+	 * multiple threads again.
+	 */
+	@Override
+	public void dispose() {
+		if (ownsPool) {
+			pool.shutdown();
+			pool = null;
+			ownsPool = false;
 		}
 	}
+
+	// Get a color channel from an RGBA8888 value as a float between 0 and 1
+	private static float channel(int rgba8888, int shift) {
+		return ((rgba8888 >>> shift) & 0xff) / 255f;
+	}
 }
@@ -0,0 +1,52 @@
+package dev.basvs.crashlander.simulation;
+
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Manifold;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Passes the contacts of a Box2D world, which takes a single contact listener, on to any number of listeners, in the
+ * order they were added.
+ */
+public class ContactDispatcher implements ContactListener {
+
+	private Array<ContactListener> listeners = new Array<ContactListener>();
+
+	public void add(ContactListener listener) {
+		listeners.add(listener);
+	}
+
+	public void remove(ContactListener listener) {
+		listeners.removeValue(listener, true);
+	}
+
+	@Override
+	public void beginContact(Contact contact) {
+		for (int l = 0; l < listeners.size; l++) {
+			listeners.get(l).beginContact(contact);
+		}
+	}
+
+	@Override
+	public void endContact(Contact contact) {
+		for (int l = 0; l < listeners.size; l++) {
+			listeners.get(l).endContact(contact);
+		}
+	}
+
+	@Override
+	public void preSolve(Contact contact, Manifold oldManifold) {
+		for (int l = 0; l < listeners.size; l++) {
+			listeners.get(l).preSolve(contact, oldManifold);
+		}
+	}
+
+	@Override
+	public void postSolve(Contact contact, ContactImpulse impulse) {
+		for (int l = 0; l < listeners.size; l++) {
+			listeners.get(l).postSolve(contact, impulse);
+		}
+	}
+}
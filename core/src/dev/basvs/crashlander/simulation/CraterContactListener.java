@@ -0,0 +1,110 @@
+package dev.basvs.crashlander.simulation;
+
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Manifold;
+import com.badlogic.gdx.physics.box2d.WorldManifold;
+import com.badlogic.gdx.utils.FloatArray;
+import dev.basvs.crashlander.GameScreen;
+import dev.basvs.crashlander.lander.CompoundBody;
+import dev.basvs.crashlander.lander.part.Part;
+import dev.basvs.crashlander.terrain.LanderWorld;
+import dev.basvs.crashlander.terrain.TerrainChunk;
+
+/**
+ * Digs a crater where a part hits the ground hard. Craters are only queued during the physics step, the landscape is
+ * changed by {@link LanderWorld#applyCraters()} afterwards.
+ *
+ * Craters dug by parts of a {@link CompoundBody} are held back until it is known whether the body is split after the
+ * step. A split body is set back to its state from before the step, so the step is not taken again: its parts take
+ * the same impact with their joints in the next step, and dig the craters then.
+ */
+public class CraterContactListener implements ContactListener {
+
+	// Smallest impulse in Box2D units that digs a crater, landing gently stays well below it
+	public static final float MIN_IMPULSE = 0.2f;
+	// Crater size in world units
+	public static final float RADIUS_PER_IMPULSE = 12f;
+	public static final float MAX_RADIUS = 20f;
+	public static final float DEPTH_PER_RADIUS = 0.3f;
+
+	private LanderWorld landerWorld;
+
+	// Craters of compound bodies in the current step: x, radius and depth
+	private FloatArray held = new FloatArray();
+
+	public CraterContactListener(LanderWorld landerWorld) {
+		this.landerWorld = landerWorld;
+	}
+
+	@Override
+	public void beginContact(Contact contact) {
+		// Do nothing
+	}
+
+	@Override
+	public void endContact(Contact contact) {
+		// Do nothing
+	}
+
+	@Override
+	public void preSolve(Contact contact, Manifold oldManifold) {
+		// Do nothing
+	}
+
+	@Override
+	public void postSolve(Contact contact, ContactImpulse impulse) {
+		Object a = getOwner(contact.getFixtureA());
+		Object b = getOwner(contact.getFixtureB());
+		if (!(a instanceof TerrainChunk && b instanceof Part) && !(a instanceof Part && b instanceof TerrainChunk)) {
+			return;
+		}
+		float[] normalImpulses = impulse.getNormalImpulses();
+		int strongest = 0;
+		for (int i = 1; i < impulse.getCount(); i++) {
+			if (normalImpulses[i] > normalImpulses[strongest]) {
+				strongest = i;
+			}
+		}
+		float strength = normalImpulses[strongest];
+		if (strength < MIN_IMPULSE) {
+			return;
+		}
+		WorldManifold manifold = contact.getWorldManifold();
+		float x = manifold.getPoints()[strongest].x * GameScreen.BOX2D_TO_WORLD;
+		float radius = Math.min(strength * RADIUS_PER_IMPULSE, MAX_RADIUS);
+		if (contact.getFixtureA().getBody().getUserData() instanceof CompoundBody
+				|| contact.getFixtureB().getBody().getUserData() instanceof CompoundBody) {
+			held.add(x, radius, radius * DEPTH_PER_RADIUS);
+		} else {
+			landerWorld.addCrater(x, radius, radius * DEPTH_PER_RADIUS);
+		}
+	}
+
+	// Parts of a compound body are found on their fixture, other parts and terrain chunks on their body
+	private static Object getOwner(Fixture fixture) {
+		Object owner = fixture.getUserData();
+		return owner != null ? owner : fixture.getBody().getUserData();
+	}
+
+	/**
+	 * Dig the craters of compound bodies held back during the last step. Call after each step in which no compound
+	 * body was split.
+	 */
+	public void commitHeld() {
+		for (int c = 0; c < held.size; c += 3) {
+			landerWorld.addCrater(held.get(c), held.get(c + 1), held.get(c + 2));
+		}
+		held.clear();
+	}
+
+	/**
+	 * Forget the craters of compound bodies held back during the last step, because the split body was set back to
+	 * before the step and meets the same impacts in the next step.
+	 */
+	public void discardHeld() {
+		held.clear();
+	}
+}
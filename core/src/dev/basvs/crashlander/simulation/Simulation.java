@@ -0,0 +1,345 @@
+package dev.basvs.crashlander.simulation;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import dev.basvs.crashlander.GameScreen;
+import dev.basvs.crashlander.controller.LanderController;
+import dev.basvs.crashlander.controller.LanderController.Control;
+import dev.basvs.crashlander.lander.CompoundBody;
+import dev.basvs.crashlander.lander.DebrisManager;
+import dev.basvs.crashlander.lander.Lander;
+import dev.basvs.crashlander.lander.LanderBuilder;
+import dev.basvs.crashlander.lander.LanderBuilder.Angle;
+import dev.basvs.crashlander.lander.design.LanderDesign;
+import dev.basvs.crashlander.lander.design.LanderDesignPart;
+import dev.basvs.crashlander.particle.ParticleManager;
+import dev.basvs.crashlander.terrain.ILanderWorldGenerator;
+import dev.basvs.crashlander.terrain.LanderWorld;
+import dev.basvs.crashlander.terrain.TerrainCacheFile;
+import dev.basvs.crashlander.terrain.MountainWorldGenerator;
+import dev.basvs.lib.profile.FrameProfiler;
+
+/**
+ * The game state of a single flight: the Box2D world, the landscape, the lander and its controller. Does not touch
+ * OpenGL, so it can be stepped without a display, as fast as the CPU allows.
+ */
+public class Simulation {
+
+	public static final int DEFAULT_TICK_RATE = 60;
+
+	public static final float LANDSCAPE_WIDTH = 2000;
+	public static final float LANDER_START_X = LANDSCAPE_WIDTH / 2;
+	public static final float LANDER_START_Y = 200;
+
+	// Box2D stuff
+	private World world;
+	private ContactDispatcher contacts = new ContactDispatcher();
+	private CraterContactListener craters;
+	private float timeStep = 1f / DEFAULT_TICK_RATE;
+
+	// Game data
+	private LanderWorld landerWorld;
+	private LanderBuilder landerBuilder;
+	private Lander lander;
+	private LanderController landerController;
+	private DebrisManager debrisManager;
+	private SimulationAssets assets;
+
+	// Optional, null when running without graphics
+	private ParticleManager particleManager;
+
+	private long ticks = 0;
+
+	// Profiling, disabled unless a profiler is given
+	private FrameProfiler profiler;
+	private int terrainPhase, particlesPhase, physicsPhase, controllerPhase, debrisPhase;
+
+	public World getWorld() {
+		return world;
+	}
+
+	public LanderWorld getLanderWorld() {
+		return landerWorld;
+	}
+
+	public Lander getLander() {
+		return lander;
+	}
+
+	public LanderController getLanderController() {
+		return landerController;
+	}
+
+	public DebrisManager getDebrisManager() {
+		return debrisManager;
+	}
+
+	public LanderBuilder getLanderBuilder() {
+		return landerBuilder;
+	}
+
+	public ParticleManager getParticleManager() {
+		return particleManager;
+	}
+
+	/**
+	 * Get the number of physics steps taken so far.
+	 *
+	 * @return
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Set the number of physics steps per simulated second, for callers that step the simulation on their own.
+	 *
+	 * @param tickRate
+	 */
+	public void setTickRate(int tickRate) {
+		timeStep = 1f / tickRate;
+	}
+
+	public float getTimeStep() {
+		return timeStep;
+	}
+
+	/**
+	 * Time the phases of each tick with the given profiler.
+	 *
+	 * @param profiler
+	 */
+	public void setProfiler(FrameProfiler profiler) {
+		this.profiler = profiler;
+		terrainPhase = profiler.addPhase("terrain");
+		particlesPhase = profiler.addPhase("particles");
+		physicsPhase = profiler.addPhase("physics");
+		controllerPhase = profiler.addPhase("controller");
+		debrisPhase = profiler.addPhase("debris");
+	}
+
+	/**
+	 * Create a new flight with the default lander design.
+	 *
+	 * @param assets
+	 * @param particleManager
+	 *            may be null if particles are not rendered
+	 * @throws Exception
+	 */
+	public Simulation(SimulationAssets assets, ParticleManager particleManager) throws Exception {
+		this(assets, particleManager, createDefaultDesign());
+	}
+
+	public Simulation(SimulationAssets assets, ParticleManager particleManager, LanderDesign design)
+			throws Exception {
+		this(assets, particleManager, design, new MountainWorldGenerator(), LANDSCAPE_WIDTH);
+	}
+
+	/**
+	 * Create a new flight.
+	 *
+	 * @param assets
+	 * @param particleManager
+	 *            may be null if particles are not rendered
+	 * @param design
+	 * @param generator
+	 *            generates the landscape, the same generator settings always give the same landscape
+	 * @param landscapeWidth
+	 *            in world units, or zero for a landscape without edges
+	 * @throws Exception
+	 */
+	public Simulation(SimulationAssets assets, ParticleManager particleManager, LanderDesign design,
+			ILanderWorldGenerator generator, float landscapeWidth) throws Exception {
+		this(assets, particleManager, design, generator, landscapeWidth, false);
+	}
+
+	/**
+	 * Create a new flight.
+	 *
+	 * @param assets
+	 * @param particleManager
+	 *            may be null if particles are not rendered
+	 * @param design
+	 * @param generator
+	 *            generates the landscape, the same generator settings always give the same landscape
+	 * @param landscapeWidth
+	 *            in world units, or zero for a landscape without edges
+	 * @param compound
+	 *            whether the lander starts as a single body, see {@link CompoundBody}; flights under thrust take other
+	 *            paths than with welded parts
+	 * @throws Exception
+	 */
+	public Simulation(SimulationAssets assets, ParticleManager particleManager, LanderDesign design,
+			ILanderWorldGenerator generator, float landscapeWidth, boolean compound) throws Exception {
+		this.assets = assets;
+		this.particleManager = particleManager;
+
+		FrameProfiler disabledProfiler = new FrameProfiler();
+		disabledProfiler.setEnabled(false);
+		setProfiler(disabledProfiler);
+
+		world = new World(new Vector2(0, -1), true);
+		landerWorld = generator.generate(world, assets.groundTexture, landscapeWidth);
+		if (assets.terrainCacheDirectory != null && landerWorld.isBounded()) {
+			landerWorld.setCacheFile(TerrainCacheFile.openOrCreate(assets.terrainCacheDirectory,
+					landerWorld.getGenerator(), 0, landerWorld.getChunkCount()));
+		}
+		craters = new CraterContactListener(landerWorld);
+		contacts.add(craters);
+		world.setContactListener(contacts);
+
+		landerBuilder = new LanderBuilder(world, particleManager, assets);
+		landerBuilder.setCompound(compound);
+		lander = landerBuilder.buildFromDesign(design, LANDER_START_X * GameScreen.WORLD_TO_BOX2D,
+				LANDER_START_Y * GameScreen.WORLD_TO_BOX2D);
+		if (lander.compound != null) {
+			contacts.add(lander.compound);
+		}
+
+		landerController = new LanderController(lander, assets.thrusterSound, assets.explosionSound);
+		debrisManager = new DebrisManager(landerBuilder, particleManager);
+		debrisManager.track(lander);
+	}
+
+	/**
+	 * Leave the lander behind as a wreck and build a new one from the same design at the start position, from parts
+	 * of despawned debris where possible.
+	 */
+	public void respawn() {
+		for (Control control : Control.values()) {
+			landerController.controlSwitch(control, false);
+		}
+		CompoundBody compound = lander.compound;
+		if (compound != null) {
+			// Split from the current state, so the wreck consists of parts like any other
+			compound.prepareStep(timeStep);
+			compound.split();
+			contacts.remove(compound);
+		}
+		debrisManager.abandon(lander);
+
+		lander = landerBuilder.buildFromDesign(lander.design, LANDER_START_X * GameScreen.WORLD_TO_BOX2D,
+				LANDER_START_Y * GameScreen.WORLD_TO_BOX2D);
+		if (lander.compound != null) {
+			contacts.add(lander.compound);
+		}
+		landerController = new LanderController(lander, assets.thrusterSound, assets.explosionSound);
+		debrisManager.track(lander);
+	}
+
+	public static LanderDesign createDefaultDesign() {
+		LanderDesign design = new LanderDesign();
+		design.name = "Test lander";
+		design.core = new LanderDesignPart();
+		design.core.partName = "Cockpit";
+
+		LanderDesignPart largeTank = design.core.attach("Large fuel tank", 1, 0, Angle.Down, false);
+		largeTank.attach("Large engine", 2, 0, Angle.Down, true).control(Control.Up);
+
+		LanderDesignPart leftLowerTank = largeTank.attach("Small fuel tank", 3, 1, Angle.Down, true);
+		leftLowerTank.attach("Small engine", 2, 0, Angle.Down, true).control(Control.Right);
+
+		LanderDesignPart rightLowerTank = largeTank.attach("Small fuel tank", 1, 3, Angle.Down, true);
+		rightLowerTank.attach("Small engine", 2, 0, Angle.Down, true).control(Control.Left);
+
+		return design;
+	}
+
+	/**
+	 * Advance the simulation by one tick. Use the same delta every tick to keep the physics independent of the frame
+	 * rate.
+	 *
+	 * @param delta
+	 */
+	public void update(float delta) {
+
+		storePreviousTransforms();
+
+		// Move lander to other side of landscape boundaries if it crosses the edge
+		// TODO: warnings & destruction if flying outside border
+		if (landerWorld.isBounded()) {
+			float landerX = lander.core.body.getPosition().x * GameScreen.BOX2D_TO_WORLD;
+			if (landerX > landerWorld.getRightX()) {
+				lander.teleport(-(landerWorld.getRightX() - landerWorld.getLeftX()), 0f);
+			} else if (landerX < landerWorld.getLeftX()) {
+				lander.teleport((landerWorld.getRightX() - landerWorld.getLeftX()), 0f);
+			}
+		}
+
+		profiler.begin(terrainPhase);
+		updateTerrain();
+		profiler.end(terrainPhase);
+
+		if (particleManager != null) {
+			profiler.begin(particlesPhase);
+			particleManager.update(delta);
+			profiler.end(particlesPhase);
+		}
+
+		// Update physics
+		profiler.begin(physicsPhase);
+		CompoundBody compound = lander.compound;
+		if (compound != null) {
+			compound.prepareStep(delta);
+		}
+		world.step(delta, 6, 2);
+		if (compound != null && compound.finishStep()) {
+			// Set back to before this step, the joints take the load in the next step and dig its craters then
+			compound.split();
+			contacts.remove(compound);
+			craters.discardHeld();
+		} else {
+			craters.commitHeld();
+		}
+		profiler.end(physicsPhase);
+
+		profiler.begin(controllerPhase);
+		landerController.update(delta);
+		profiler.end(controllerPhase);
+
+		profiler.begin(debrisPhase);
+		debrisManager.update(delta, lander.core.getX() * GameScreen.BOX2D_TO_WORLD,
+				lander.core.getY() * GameScreen.BOX2D_TO_WORLD);
+		profiler.end(debrisPhase);
+
+		ticks++;
+	}
+
+	// Keep physics for the landscape under every part, including those that broke off and those of wrecks
+	private void updateTerrain() {
+		// Craters from the impacts of the previous step
+		landerWorld.applyCraters();
+		landerWorld.beginPhysicsUpdate();
+		keepPhysicsAround(lander);
+		Array<Lander> wrecks = debrisManager.getWrecks();
+		for (int w = 0; w < wrecks.size; w++) {
+			keepPhysicsAround(wrecks.get(w));
+		}
+		landerWorld.endPhysicsUpdate();
+	}
+
+	private void keepPhysicsAround(Lander lander) {
+		for (int p = 0; p < lander.parts.size; p++) {
+			landerWorld.keepPhysicsAround(lander.parts.get(p).getX() * GameScreen.BOX2D_TO_WORLD);
+		}
+	}
+
+	private void storePreviousTransforms() {
+		storePreviousTransforms(lander);
+		Array<Lander> wrecks = debrisManager.getWrecks();
+		for (int w = 0; w < wrecks.size; w++) {
+			storePreviousTransforms(wrecks.get(w));
+		}
+	}
+
+	private void storePreviousTransforms(Lander lander) {
+		for (int p = 0; p < lander.parts.size; p++) {
+			lander.parts.get(p).storePreviousTransform();
+		}
+	}
+
+	public void dispose() {
+		world.dispose();
+	}
+}
@@ -0,0 +1,45 @@
+package dev.basvs.crashlander.simulation;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+
+/**
+ * Everything a {@link Simulation} needs from outside the physics world. Only the part design file is required; leave
+ * the textures and sounds null to run without a display or audio device.
+ */
+public class SimulationAssets {
+
+	public FileHandle partDesigns;
+
+	// Directory to store generated landscapes in, may be null
+	public FileHandle terrainCacheDirectory;
+
+	public Texture groundTexture;
+	public TextureAtlas partTextures, particleTextures;
+
+	public Sound thrusterSound, explosionSound;
+
+	/**
+	 * Collect the simulation assets from a (fully loaded) asset manager.
+	 * 
+	 * @param assets
+	 * @return
+	 */
+	public static SimulationAssets fromAssetManager(AssetManager assets) {
+		SimulationAssets simulationAssets = new SimulationAssets();
+		simulationAssets.partDesigns = Gdx.files.internal("data/parts.json");
+		if (Gdx.files.isLocalStorageAvailable()) {
+			simulationAssets.terrainCacheDirectory = Gdx.files.local("cache");
+		}
+		simulationAssets.groundTexture = assets.get("data/ground.png", Texture.class);
+		simulationAssets.partTextures = assets.get("data/parts.atlas", TextureAtlas.class);
+		simulationAssets.particleTextures = assets.get("data/particles.atlas", TextureAtlas.class);
+		simulationAssets.thrusterSound = assets.get("data/audio/rocket.wav", Sound.class);
+		simulationAssets.explosionSound = assets.get("data/audio/boom.wav", Sound.class);
+		return simulationAssets;
+	}
+}
@@ -0,0 +1,55 @@
+package dev.basvs.crashlander.terrain;
+
+/**
+ * Douglas-Peucker simplification of a row of evenly spaced heights. The error is measured vertically, which is what
+ * shows on screen for a landscape, and the first and last vertex are always kept so simplified chunks still meet
+ * their neighbours.
+ */
+public class HeightfieldSimplifier {
+
+	/**
+	 * Pick the vertices to keep so no dropped vertex lies further than the tolerance from the simplified line.
+	 * 
+	 * @param heights
+	 * @param tolerance
+	 *            maximum vertical error, in the units of the heights
+	 * @param kept
+	 *            receives the indices of the kept vertices in increasing order, must have room for all heights
+	 * @return number of kept vertices
+	 */
+	public static int simplify(float[] heights, float tolerance, int[] kept) {
+		int last = heights.length - 1;
+		boolean[] keep = new boolean[heights.length];
+		keep[0] = true;
+		keep[last] = true;
+		simplify(heights, 0, last, tolerance, keep);
+		int count = 0;
+		for (int i = 0; i <= last; i++) {
+			if (keep[i]) {
+				kept[count++] = i;
+			}
+		}
+		return count;
+	}
+
+	private static void simplify(float[] heights, int first, int last, float tolerance, boolean[] keep) {
+		if (last - first < 2) {
+			return;
+		}
+		float slope = (heights[last] - heights[first]) / (last - first);
+		float maxError = -1f;
+		int farthest = first;
+		for (int i = first + 1; i < last; i++) {
+			float error = Math.abs(heights[i] - (heights[first] + slope * (i - first)));
+			if (error > maxError) {
+				maxError = error;
+				farthest = i;
+			}
+		}
+		if (maxError > tolerance) {
+			keep[farthest] = true;
+			simplify(heights, first, farthest, tolerance, keep);
+			simplify(heights, farthest, last, tolerance, keep);
+		}
+	}
+}
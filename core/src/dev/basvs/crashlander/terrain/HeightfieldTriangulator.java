@@ -0,0 +1,64 @@
+package dev.basvs.crashlander.terrain;
+
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Triangulates the area below a row of heights down to a flat bottom in linear time. Each column of the row has a
+ * vertex at the surface followed by one at the bottom, and every pair of neighbouring columns forms two triangles.
+ * The triangle indices only depend on the number of columns, so one index array is shared by all polygons with the
+ * same number of columns. Safe to use from several threads.
+ */
+public class HeightfieldTriangulator {
+
+	// Index arrays by number of columns
+	private final IntMap<short[]> triangles = new IntMap<short[]>();
+
+	/**
+	 * Get the triangle indices for the given number of columns. The array is shared and must not be changed.
+	 * 
+	 * @param columns
+	 *            at least 2, at most 16384 so the indices fit in a short
+	 * @return three indices per triangle
+	 */
+	public synchronized short[] getTriangles(int columns) {
+		short[] indices = triangles.get(columns);
+		if (indices == null) {
+			indices = new short[(columns - 1) * 6];
+			int i = 0;
+			for (int c = 0; c < columns - 1; c++) {
+				short top = (short) (c * 2);
+				short bottom = (short) (c * 2 + 1);
+				short nextTop = (short) (c * 2 + 2);
+				short nextBottom = (short) (c * 2 + 3);
+				indices[i++] = top;
+				indices[i++] = bottom;
+				indices[i++] = nextTop;
+				indices[i++] = nextTop;
+				indices[i++] = bottom;
+				indices[i++] = nextBottom;
+			}
+			triangles.put(columns, indices);
+		}
+		return indices;
+	}
+
+	/**
+	 * Set the two vertices of a column.
+	 * 
+	 * @param vertices
+	 *            x and y of each vertex, four floats per column
+	 * @param column
+	 * @param x
+	 * @param top
+	 *            y of the surface
+	 * @param bottom
+	 *            y of the bottom
+	 */
+	public static void setColumn(float[] vertices, int column, float x, float top, float bottom) {
+		int v = column * 4;
+		vertices[v] = x;
+		vertices[v + 1] = top;
+		vertices[v + 2] = x;
+		vertices[v + 3] = bottom;
+	}
+}
@@ -1,9 +1,10 @@
 package dev.basvs.crashlander.terrain;
 
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.physics.box2d.World;
 
 public interface ILanderWorldGenerator {
 
-	public LanderWorld generate(World world, float widthM);
+	public LanderWorld generate(World world, Texture groundTexture, float widthM);
 
 }
@@ -0,0 +1,37 @@
+package dev.basvs.crashlander.terrain;
+
+/**
+ * Generates the landscape one chunk at a time. The heights of a chunk only depend on its index and the settings of
+ * the generator, so any chunk can be generated again later, in any order and on any thread.
+ */
+public interface ITerrainChunkGenerator {
+
+	/**
+	 * Get the horizontal distance between landscape vertices.
+	 * 
+	 * @return distance in world units
+	 */
+	public float getSegmentWidth();
+
+	/**
+	 * Generate the heights of the vertices of a chunk. The last vertex of a chunk lies at the same x position as the
+	 * first vertex of the next chunk, and gets the same height.
+	 * 
+	 * @param index
+	 *            chunk index, chunk 0 starts at x = 0 and negative indices lie to the left of it
+	 * @param segments
+	 *            number of segments per chunk
+	 * @param heights
+	 *            receives segments + 1 heights in world units
+	 */
+	public void generateChunk(int index, int segments, float[] heights);
+
+	/**
+	 * Get a value that identifies the generated landscape: generators with the same signature must generate the same
+	 * heights. Used to tell stored landscapes apart.
+	 * 
+	 * @return a hash of the seed, the settings and the version of the algorithm
+	 */
+	public long getSignature();
+
+}
@@ -3,97 +3,765 @@ package dev.basvs.crashlander.terrain;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.PolygonRegion;
 import com.badlogic.gdx.graphics.g2d.PolygonSprite;
+import com.badlogic.gdx.graphics.g2d.PolygonSpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.math.EarClippingTriangulator;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.physics.box2d.ChainShape;
+import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.World;
-import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.ShortArray;
-import dev.basvs.crashlander.CrashLander;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.IntSet;
 import dev.basvs.crashlander.GameScreen;
 import dev.basvs.crashlander.lander.LanderBuilder;
 
+/**
+ * The landscape, split into chunks of a fixed number of segments. Chunk heights come from a chunk generator through a
+ * cache. Physics bodies are only created for chunks near the bodies that need ground under them, sprites only for
+ * chunks near the camera. The landscape either has a fixed number of chunks starting at x = 0, or goes on forever in
+ * both directions.
+ *
+ * Chunk meshes are built on the render thread when they are needed, unless a {@link TerrainPipeline} is set, which
+ * builds them ahead on background threads. Bodies are always created on the thread that updates the physics.
+ *
+ * Craters change the heights of the chunks they hit. Changed heights are kept apart from the chunk cache and the cache
+ * file, which always hold the generated landscape, and take their place wherever heights are used.
+ */
 public class LanderWorld {
 
 	public static final float LANDSCAPE_POLYGON_BOTTOM_Y = -1000;
 
-	private Array<Vector2> landscape;
-	private Body landscapeBody;
-	private PolygonSprite landscapePolySprite;
-	private float leftX, rightX;
+	// Number of landscape segments per chunk
+	public static final int CHUNK_SEGMENTS = 40;
+	// Distances in world units
+	public static final float DEFAULT_PHYSICS_RADIUS = 200;
+	public static final float DEFAULT_RENDER_MARGIN = 100;
+	// Chunks are unloaded a bit further away than where they are loaded, so they do not flip at the edge
+	public static final float UNLOAD_MARGIN = 50;
+
+	// Levels of detail of the sprites, each level may be off twice as far as the previous one
+	public static final int LOD_LEVELS = 4;
+	// Error in pixels allowed at the zoom level where a level of detail is first used
+	public static final float LOD_PIXEL_ERROR = 1f;
+
+	// Finished meshes turned into sprites per update, so a burst of finished chunks does not make one frame slow
+	public static final int MAX_MESHES_PER_UPDATE = 8;
+
 	private World world;
 	private Texture groundTexture;
+	private TerrainMeshBuilder meshBuilder;
+	// Optional, builds meshes on background threads
+	private TerrainPipeline pipeline;
+
+	private ITerrainChunkGenerator generator;
+	private TerrainChunkCache cache;
+	// Zero if the landscape has no edges
+	private int chunkCount;
+	private float segmentWidth, chunkWidth;
+
+	// Flat ground of the chunks that were active at some point
+	private LandingZoneIndex landingZones;
+
+	// Heights of the chunks changed by craters
+	private IntMap<float[]> deformedHeights = new IntMap<float[]>();
+	// Craters waiting for the next update, three floats each: x, radius and depth
+	private FloatArray pendingCraters = new FloatArray();
+	// Chunks changed by the pending craters
+	private IntSet dirtyChunks = new IntSet();
+	private IntSet ghostChunks = new IntSet();
+
+	// Chunks that have a body or a sprite
+	private IntMap<TerrainChunk> activeChunks = new IntMap<TerrainChunk>();
+
+	// Heights of the chunk used by the last height query, as queries tend to stay within one chunk
+	private int queryIndex;
+	private float[] queryHeights;
+
+	private float physicsRadius = DEFAULT_PHYSICS_RADIUS;
+	private float renderMargin = DEFAULT_RENDER_MARGIN;
+
+	// Statistics
+	private long bodiesLoaded = 0, bodiesUnloaded = 0, spritesLoaded = 0, spritesUnloaded = 0;
+	private long cratersApplied = 0, chunksRebuilt = 0;
+
+	public ITerrainChunkGenerator getGenerator() {
+		return generator;
+	}
+
+	public TerrainChunkCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Get the landing pads of the chunks that were loaded so far, see {@link #indexLandingZones(float, float)} to
+	 * look further ahead.
+	 *
+	 * @return
+	 */
+	public LandingZoneIndex getLandingZones() {
+		return landingZones;
+	}
+
+	/**
+	 * Find the landing pads in a range of the landscape that was not loaded yet.
+	 *
+	 * @param left
+	 *            in world units
+	 * @param right
+	 *            in world units
+	 */
+	public void indexLandingZones(float left, float right) {
+		int last = findChunk(right);
+		for (int c = findChunk(left); c <= last; c++) {
+			if (!landingZones.contains(c)) {
+				landingZones.addChunk(c, getChunkHeights(c));
+			}
+		}
+	}
 
-	public Array<Vector2> getLandscape() {
-		return landscape;
+	public TerrainMeshBuilder getMeshBuilder() {
+		return meshBuilder;
 	}
 
-	public Body getLandscapeBody() {
-		return landscapeBody;
+	/**
+	 * Read chunks from a cache file when it has them, instead of generating them.
+	 *
+	 * @param file
+	 *            null to always generate
+	 */
+	public void setCacheFile(TerrainCacheFile file) {
+		cache.setFile(file);
+		meshBuilder.setFile(file);
 	}
 
-	public PolygonSprite getPolySprite() {
-		return landscapePolySprite;
+	public TerrainPipeline getPipeline() {
+		return pipeline;
+	}
+
+	/**
+	 * Build chunk meshes ahead on background threads. The pipeline is not disposed by the lander world.
+	 *
+	 * @param pipeline
+	 *            null to build meshes on the render thread when they are needed
+	 */
+	public void setPipeline(TerrainPipeline pipeline) {
+		if (this.pipeline != null) {
+			this.pipeline.cancelAll();
+		}
+		this.pipeline = pipeline;
+	}
+
+	/**
+	 * Check whether the landscape has edges, beyond which the lander is moved to the other side.
+	 *
+	 * @return
+	 */
+	public boolean isBounded() {
+		return chunkCount > 0;
+	}
+
+	/**
+	 * Get the number of chunks of a bounded landscape.
+	 *
+	 * @return zero if the landscape has no edges
+	 */
+	public int getChunkCount() {
+		return chunkCount;
 	}
 
 	public float getLeftX() {
-		return leftX;
+		return isBounded() ? 0f : -Float.MAX_VALUE;
 	}
 
 	public float getRightX() {
-		return rightX;
+		return isBounded() ? chunkCount * chunkWidth : Float.MAX_VALUE;
+	}
+
+	public float getSegmentWidth() {
+		return segmentWidth;
+	}
+
+	public float getChunkWidth() {
+		return chunkWidth;
+	}
+
+	/**
+	 * Get the chunks that currently have a body or a sprite.
+	 *
+	 * @return
+	 */
+	public IntMap<TerrainChunk> getActiveChunks() {
+		return activeChunks;
+	}
+
+	public float getPhysicsRadius() {
+		return physicsRadius;
+	}
+
+	/**
+	 * Set how far around each body that needs ground the landscape gets physics.
+	 *
+	 * @param physicsRadius
+	 *            in world units
+	 */
+	public void setPhysicsRadius(float physicsRadius) {
+		this.physicsRadius = physicsRadius;
 	}
 
-	public LanderWorld(World world) {
+	public float getRenderMargin() {
+		return renderMargin;
+	}
+
+	/**
+	 * Set how far beyond the edges of the view sprites are kept.
+	 *
+	 * @param renderMargin
+	 *            in world units
+	 */
+	public void setRenderMargin(float renderMargin) {
+		this.renderMargin = renderMargin;
+	}
+
+	public long getBodiesLoaded() {
+		return bodiesLoaded;
+	}
+
+	public long getBodiesUnloaded() {
+		return bodiesUnloaded;
+	}
+
+	public long getSpritesLoaded() {
+		return spritesLoaded;
+	}
+
+	public long getSpritesUnloaded() {
+		return spritesUnloaded;
+	}
+
+	public long getCratersApplied() {
+		return cratersApplied;
+	}
+
+	/**
+	 * Get the number of times a chunk body or sprite was rebuilt because of craters since the last reset.
+	 *
+	 * @return
+	 */
+	public long getChunksRebuilt() {
+		return chunksRebuilt;
+	}
+
+	public void resetStatistics() {
+		bodiesLoaded = 0;
+		bodiesUnloaded = 0;
+		spritesLoaded = 0;
+		spritesUnloaded = 0;
+		cratersApplied = 0;
+		chunksRebuilt = 0;
+	}
+
+	/**
+	 * Create a lander world. Nothing is loaded until the first update. Without a ground texture no sprites are made
+	 * for the landscape, which is fine when running without graphics.
+	 *
+	 * @param world
+	 * @param groundTexture
+	 *            may be null
+	 * @param generator
+	 * @param chunkCount
+	 *            number of chunks, or zero for a landscape without edges
+	 */
+	public LanderWorld(World world, Texture groundTexture, ITerrainChunkGenerator generator, int chunkCount) {
 		this.world = world;
+		this.groundTexture = groundTexture;
+		this.generator = generator;
+		this.chunkCount = chunkCount;
+		segmentWidth = generator.getSegmentWidth();
+		chunkWidth = segmentWidth * CHUNK_SEGMENTS;
+		cache = new TerrainChunkCache(generator, CHUNK_SEGMENTS, TerrainChunkCache.DEFAULT_MAX_BYTES);
+		meshBuilder = new TerrainMeshBuilder(generator, CHUNK_SEGMENTS);
+		landingZones = new LandingZoneIndex(CHUNK_SEGMENTS, segmentWidth, LandingZoneIndex.DEFAULT_MAX_SLOPE,
+				LandingZoneIndex.DEFAULT_MIN_WIDTH);
+	}
 
-		groundTexture = CrashLander.getInstance().getAssets().get("data/ground.png", Texture.class);
+	/**
+	 * Start deciding which chunks need physics, followed by calls to {@link #keepPhysicsAround(float)} and
+	 * {@link #endPhysicsUpdate()}.
+	 */
+	public void beginPhysicsUpdate() {
+		for (TerrainChunk chunk : activeChunks.values()) {
+			chunk.load = false;
+			chunk.keep = false;
+		}
 	}
 
-	public void setLandscape(Array<Vector2> landscape) {
-		this.landscape = landscape;
-		leftX = landscape.first().x;
-		rightX = landscape.peek().x;
+	/**
+	 * Make sure the landscape around a position has physics.
+	 *
+	 * @param x
+	 *            in world units
+	 */
+	public void keepPhysicsAround(float x) {
+		float left = x - physicsRadius;
+		float right = x + physicsRadius;
+		int first = findChunk(left - UNLOAD_MARGIN);
+		int last = findChunk(right + UNLOAD_MARGIN);
+		for (int c = first; c <= last; c++) {
+			TerrainChunk chunk = activeChunks.get(c);
+			boolean load = overlaps(c, left, right);
+			if (chunk == null) {
+				if (!load) {
+					continue;
+				}
+				chunk = activate(c);
+			}
+			chunk.keep = true;
+			chunk.load |= load;
+		}
+	}
 
-		// Create arrays for Box2D body and sprite polygons
-		Vector2[] chunkBodyVertices = new Vector2[landscape.size];
-		float[] chunkSpriteVertices = new float[landscape.size * 2 + 4];
+	/**
+	 * Create the chunk bodies that are needed and destroy those that are no longer needed.
+	 */
+	public void endPhysicsUpdate() {
+		IntMap.Values<TerrainChunk> values = activeChunks.values();
+		while (values.hasNext()) {
+			TerrainChunk chunk = values.next();
+			if (chunk.body == null && chunk.load) {
+				loadBody(chunk);
+			} else if (chunk.body != null && !chunk.keep) {
+				unloadBody(chunk);
+				if (chunk.sprites == null) {
+					values.remove();
+				}
+			}
+		}
+	}
 
-		// Fill arrays based on world shape
-		for (int i = 0; i < landscape.size; i++) {
-			Vector2 v = landscape.get(i);
-			chunkSpriteVertices[i * 2] = v.x * GameScreen.WORLD_TO_RENDER;
-			chunkSpriteVertices[i * 2 + 1] = v.y * GameScreen.WORLD_TO_RENDER;
-			chunkBodyVertices[i] = new Vector2(v.x * GameScreen.WORLD_TO_BOX2D, v.y * GameScreen.WORLD_TO_BOX2D);
+	/**
+	 * Create the sprites of the chunks in view and drop those far out of view. With a pipeline, chunks in view are
+	 * requested from it and only the meshes it finished are turned into sprites, so a chunk may be missing for a few
+	 * frames instead of holding up the frame. Does nothing without a ground texture.
+	 *
+	 * @param left
+	 *            left edge of the view in world units
+	 * @param right
+	 *            right edge of the view in world units
+	 */
+	public void updateSprites(float left, float right) {
+		if (groundTexture == null) {
+			return;
+		}
+		float keepLeft = left - renderMargin - UNLOAD_MARGIN;
+		float keepRight = right + renderMargin + UNLOAD_MARGIN;
+		IntMap.Values<TerrainChunk> values = activeChunks.values();
+		while (values.hasNext()) {
+			TerrainChunk chunk = values.next();
+			if (chunk.sprites != null && !overlaps(chunk.index, keepLeft, keepRight)) {
+				unloadSprite(chunk);
+				if (chunk.body == null) {
+					values.remove();
+				}
+			}
+		}
+		int first = findChunk(left - renderMargin);
+		int last = findChunk(right + renderMargin);
+		if (pipeline != null) {
+			updatePipeline(first, last, keepLeft, keepRight);
+			return;
+		}
+		for (int c = first; c <= last; c++) {
+			TerrainChunk chunk = activeChunks.get(c);
+			if (chunk == null) {
+				chunk = activate(c);
+			}
+			if (chunk.sprites == null) {
+				loadSprite(chunk, meshBuilder.build(c, chunk.heights, deformedHeights.containsKey(c)));
+			}
 		}
+	}
+
+	private void updatePipeline(int first, int last, float keepLeft, float keepRight) {
+		pipeline.cancelOutside(findChunk(keepLeft), findChunk(keepRight));
+		TerrainChunkMesh mesh;
+		for (int m = 0; m < MAX_MESHES_PER_UPDATE && (mesh = pipeline.poll()) != null; m++) {
+			float[] deformed = deformedHeights.get(mesh.index);
+			if (deformed == null) {
+				cache.putHeights(mesh.index, mesh.heights);
+			} else if (mesh.heights != deformed) {
+				// Built before a crater changed the chunk, it is requested again below
+				continue;
+			}
+			if (!overlaps(mesh.index, keepLeft, keepRight)) {
+				continue;
+			}
+			TerrainChunk chunk = activeChunks.get(mesh.index);
+			if (chunk == null) {
+				chunk = activate(mesh.index);
+			}
+			if (chunk.sprites == null) {
+				loadSprite(chunk, mesh);
+			}
+		}
+		for (int c = first; c <= last; c++) {
+			TerrainChunk chunk = activeChunks.get(c);
+			float[] deformed = deformedHeights.get(c);
+			if (chunk == null) {
+				pipeline.request(c, deformed != null ? deformed : cache.peekHeights(c), deformed != null);
+			} else if (chunk.sprites == null) {
+				pipeline.request(c, chunk.heights, deformed != null);
+			}
+		}
+	}
+
+	/**
+	 * Draw the loaded chunk sprites at full detail.
+	 *
+	 * @param batch
+	 */
+	public void render(PolygonSpriteBatch batch) {
+		render(batch, 1f);
+	}
 
+	/**
+	 * Draw the loaded chunk sprites with the level of detail that suits the camera zoom.
+	 *
+	 * @param batch
+	 * @param zoom
+	 *            camera zoom, larger values show more of the world
+	 */
+	public void render(PolygonSpriteBatch batch, float zoom) {
+		int level = getLodLevel(zoom);
+		for (TerrainChunk chunk : activeChunks.values()) {
+			if (chunk.sprites != null) {
+				chunk.sprites[level].draw(batch);
+			}
+		}
+	}
+
+	/**
+	 * Get the maximum vertical error of a level of detail.
+	 *
+	 * @param level
+	 * @return error in world units
+	 */
+	public static float getLodTolerance(int level) {
+		return LOD_PIXEL_ERROR * GameScreen.RENDER_TO_WORLD * (1 << level);
+	}
+
+	/**
+	 * Get the most simplified level of detail whose error stays within {@link #LOD_PIXEL_ERROR} pixels at the zoom.
+	 *
+	 * @param zoom
+	 * @return
+	 */
+	public static int getLodLevel(float zoom) {
+		int level = 0;
+		while (level < LOD_LEVELS - 1 && (2 << level) <= zoom) {
+			level++;
+		}
+		return level;
+	}
+
+	/**
+	 * Dig a crater into the landscape at the next {@link #applyCraters()}. Safe to call during a physics step, for
+	 * example from a contact listener.
+	 *
+	 * @param x
+	 *            center in world units
+	 * @param radius
+	 *            half the width in world units
+	 * @param depth
+	 *            at the center in world units
+	 */
+	public void addCrater(float x, float radius, float depth) {
+		pendingCraters.add(x, radius, depth);
+	}
+
+	/**
+	 * Dig the craters added since the last call and rebuild the bodies and sprites of the chunks they changed. All
+	 * craters are applied before anything is rebuilt, so each chunk is rebuilt once however many craters hit it. Must
+	 * not be called during a physics step.
+	 */
+	public void applyCraters() {
+		if (pendingCraters.size == 0) {
+			return;
+		}
+		for (int i = 0; i < pendingCraters.size; i += 3) {
+			dig(pendingCraters.get(i), pendingCraters.get(i + 1), pendingCraters.get(i + 2));
+			cratersApplied++;
+		}
+		pendingCraters.clear();
+		queryHeights = null;
+
+		IntSet.IntSetIterator dirty = dirtyChunks.iterator();
+		while (dirty.hasNext) {
+			int index = dirty.next();
+			rebuild(index);
+			// The ghost vertices of the neighbours may have changed as well
+			if (!dirtyChunks.contains(index - 1)) {
+				ghostChunks.add(index - 1);
+			}
+			if (!dirtyChunks.contains(index + 1)) {
+				ghostChunks.add(index + 1);
+			}
+		}
+		IntSet.IntSetIterator ghosts = ghostChunks.iterator();
+		while (ghosts.hasNext) {
+			TerrainChunk chunk = activeChunks.get(ghosts.next());
+			if (chunk != null && chunk.body != null) {
+				rebuildFixture(chunk);
+			}
+		}
+		dirtyChunks.clear();
+		ghostChunks.clear();
+	}
+
+	/**
+	 * Check whether craters changed the heights of a chunk.
+	 *
+	 * @param index
+	 * @return
+	 */
+	public boolean isDeformed(int index) {
+		return deformedHeights.containsKey(index);
+	}
+
+	// Lower the vertices within the radius, along a parabola
+	private void dig(float x, float radius, float depth) {
+		float bottom = LANDSCAPE_POLYGON_BOTTOM_Y + 1f;
+		int last = findChunk(x + radius);
+		for (int c = findChunk(x - radius); c <= last; c++) {
+			float[] heights = deformedHeights.get(c);
+			if (heights == null) {
+				heights = getChunkHeights(c).clone();
+				deformedHeights.put(c, heights);
+			}
+			long firstVertex = (long) c * CHUNK_SEGMENTS;
+			for (int i = 0; i <= CHUNK_SEGMENTS; i++) {
+				// Position from the global vertex index, so both chunks sharing an edge vertex lower it the same
+				float t = ((firstVertex + i) * segmentWidth - x) / radius;
+				if (t > -1f && t < 1f) {
+					heights[i] = Math.max(heights[i] - depth * (1f - t * t), bottom);
+				}
+			}
+			dirtyChunks.add(c);
+		}
+	}
+
+	private void rebuild(int index) {
+		float[] heights = deformedHeights.get(index);
+		if (landingZones.contains(index)) {
+			landingZones.addChunk(index, heights);
+		}
+		if (pipeline != null) {
+			pipeline.cancel(index);
+		}
+		TerrainChunk chunk = activeChunks.get(index);
+		if (chunk == null) {
+			return;
+		}
+		chunk.heights = heights;
+		if (chunk.body != null) {
+			rebuildFixture(chunk);
+		}
+		if (chunk.sprites != null) {
+			chunk.sprites = createSprites(meshBuilder.build(index, heights, true));
+			chunksRebuilt++;
+		}
+	}
+
+	private void rebuildFixture(TerrainChunk chunk) {
+		chunk.body.destroyFixture(chunk.body.getFixtureList().first());
+		createFixture(chunk, chunk.body);
+		chunksRebuilt++;
+	}
+
+	/**
+	 * Find the chunk containing an x position. If the landscape has edges and the position lies beyond them the
+	 * nearest chunk is returned.
+	 *
+	 * @param x
+	 *            in world units
+	 * @return
+	 */
+	public int findChunk(float x) {
+		int index = (int) Math.floor(x / chunkWidth);
+		if (isBounded()) {
+			index = Math.max(0, Math.min(index, chunkCount - 1));
+		}
+		return index;
+	}
+
+	/**
+	 * Get the height of the landscape at an x position, interpolated between the vertices. Beyond the edges of a
+	 * bounded landscape the height at the edge is returned.
+	 *
+	 * @param x
+	 *            in world units
+	 * @return height in world units
+	 */
+	public float getHeight(float x) {
+		int index = findChunk(x);
+		float[] heights = getQueryHeights(index);
+		float local = clampLocal(x - index * chunkWidth);
+		int segment = Math.min((int) (local / segmentWidth), CHUNK_SEGMENTS - 1);
+		float t = local / segmentWidth - segment;
+		return heights[segment] + t * (heights[segment + 1] - heights[segment]);
+	}
+
+	/**
+	 * Get the height of a position above the landscape directly below (or above) it.
+	 *
+	 * @param x
+	 *            in world units
+	 * @param y
+	 *            in world units
+	 * @return altitude in world units, negative if the position lies below the surface
+	 */
+	public float getAltitude(float x, float y) {
+		return y - getHeight(x);
+	}
+
+	/**
+	 * Get the slope of the landscape segment at an x position.
+	 *
+	 * @param x
+	 *            in world units
+	 * @return rise per unit of x, zero is flat
+	 */
+	public float getSlope(float x) {
+		int index = findChunk(x);
+		float[] heights = getQueryHeights(index);
+		float local = clampLocal(x - index * chunkWidth);
+		int segment = Math.min((int) (local / segmentWidth), CHUNK_SEGMENTS - 1);
+		return (heights[segment + 1] - heights[segment]) / segmentWidth;
+	}
+
+	/**
+	 * Get the upward pointing unit normal of the landscape segment at an x position.
+	 *
+	 * @param x
+	 *            in world units
+	 * @param normal
+	 *            receives the normal
+	 * @return the normal
+	 */
+	public Vector2 getNormal(float x, Vector2 normal) {
+		return normal.set(-getSlope(x), 1f).nor();
+	}
+
+	private float clampLocal(float local) {
+		return Math.max(0f, Math.min(local, chunkWidth));
+	}
+
+	private float[] getQueryHeights(int index) {
+		if (queryHeights == null || queryIndex != index) {
+			TerrainChunk chunk = activeChunks.get(index);
+			queryHeights = chunk != null ? chunk.heights : getChunkHeights(index);
+			queryIndex = index;
+		}
+		return queryHeights;
+	}
+
+	private float[] getChunkHeights(int index) {
+		float[] heights = deformedHeights.get(index);
+		return heights != null ? heights : cache.getHeights(index);
+	}
+
+	private boolean overlaps(int index, float left, float right) {
+		return (index + 1) * chunkWidth >= left && index * chunkWidth <= right;
+	}
+
+	private boolean exists(int index) {
+		return !isBounded() || (index >= 0 && index < chunkCount);
+	}
+
+	private TerrainChunk activate(int index) {
+		TerrainChunk chunk = new TerrainChunk();
+		chunk.index = index;
+		chunk.leftX = index * chunkWidth;
+		chunk.rightX = (index + 1) * chunkWidth;
+		chunk.heights = getChunkHeights(index);
+		activeChunks.put(index, chunk);
+		if (!landingZones.contains(index)) {
+			landingZones.addChunk(index, chunk.heights);
+		}
+		return chunk;
+	}
+
+	private void loadBody(TerrainChunk chunk) {
 		// Ground body is located at altitude = 0f
 		BodyDef bodyDef = new BodyDef();
 		bodyDef.type = BodyType.StaticBody;
 		bodyDef.position.set(0f, 0f);
-		landscapeBody = world.createBody(bodyDef);
+		Body body = world.createBody(bodyDef);
+		body.setUserData(chunk);
+		createFixture(chunk, body);
 
-		// Create chain shape representing this part of the landscape
+		chunk.body = body;
+		bodiesLoaded++;
+	}
+
+	private void createFixture(TerrainChunk chunk, Body body) {
+		float[] heights = chunk.heights;
+		Vector2[] bodyVertices = new Vector2[heights.length];
+		for (int i = 0; i < heights.length; i++) {
+			bodyVertices[i] = new Vector2((chunk.leftX + i * segmentWidth) * GameScreen.WORLD_TO_BOX2D, heights[i]
+					* GameScreen.WORLD_TO_BOX2D);
+		}
+
+		// Create chain shape representing this part of the landscape, using the neighbouring vertices as ghost
+		// vertices so bodies slide smoothly across chunk edges
 		ChainShape chainShape = new ChainShape();
-		chainShape.createChain(chunkBodyVertices);
-		landscapeBody.createFixture(chainShape, 0);
+		chainShape.createChain(bodyVertices);
+		if (exists(chunk.index - 1)) {
+			float[] previous = getChunkHeights(chunk.index - 1);
+			chainShape.setPrevVertex((chunk.leftX - segmentWidth) * GameScreen.WORLD_TO_BOX2D,
+					previous[CHUNK_SEGMENTS - 1] * GameScreen.WORLD_TO_BOX2D);
+		}
+		if (exists(chunk.index + 1)) {
+			float[] next = getChunkHeights(chunk.index + 1);
+			chainShape.setNextVertex((chunk.rightX + segmentWidth) * GameScreen.WORLD_TO_BOX2D, next[1]
+					* GameScreen.WORLD_TO_BOX2D);
+		}
+		Fixture fixture = body.createFixture(chainShape, 0);
 		chainShape.dispose();
-		landscapeBody.getFixtureList().get(0).getFilterData().categoryBits = LanderBuilder.COLLISION_CATEGORY_WORLD;
-		landscapeBody.getFixtureList().get(0).getFilterData().maskBits = LanderBuilder.COLLISION_CATEGORY_FRAME
+		fixture.getFilterData().categoryBits = LanderBuilder.COLLISION_CATEGORY_WORLD;
+		fixture.getFilterData().maskBits = LanderBuilder.COLLISION_CATEGORY_FRAME
 				| LanderBuilder.COLLISION_CATEGORY_PARTS;
+	}
 
-		// Create rectangular bottom part of sprite polygon
-		chunkSpriteVertices[chunkSpriteVertices.length - 4] = chunkSpriteVertices[chunkSpriteVertices.length - 6];
-		chunkSpriteVertices[chunkSpriteVertices.length - 3] = LANDSCAPE_POLYGON_BOTTOM_Y * GameScreen.WORLD_TO_RENDER;
-		chunkSpriteVertices[chunkSpriteVertices.length - 2] = chunkSpriteVertices[0];
-		chunkSpriteVertices[chunkSpriteVertices.length - 1] = LANDSCAPE_POLYGON_BOTTOM_Y * GameScreen.WORLD_TO_RENDER;
+	private void unloadBody(TerrainChunk chunk) {
+		if (chunk.body != null) {
+			world.destroyBody(chunk.body);
+			chunk.body = null;
+			bodiesUnloaded++;
+		}
+	}
+
+	private void loadSprite(TerrainChunk chunk, TerrainChunkMesh mesh) {
+		chunk.sprites = createSprites(mesh);
+		spritesLoaded++;
+	}
 
-		ShortArray triangleIndices = new EarClippingTriangulator().computeTriangles(chunkSpriteVertices);
-		PolygonRegion polyReg = new PolygonRegion(new TextureRegion(groundTexture), chunkSpriteVertices, triangleIndices.toArray());
-		landscapePolySprite = new PolygonSprite(polyReg);
+	private PolygonSprite[] createSprites(TerrainChunkMesh mesh) {
+		TextureRegion region = new TextureRegion(groundTexture);
+		PolygonSprite[] sprites = new PolygonSprite[LOD_LEVELS];
+		for (int level = 0; level < LOD_LEVELS; level++) {
+			PolygonRegion polyReg = new PolygonRegion(region, mesh.vertices[level], mesh.triangles[level]);
+			sprites[level] = new PolygonSprite(polyReg);
+		}
+		return sprites;
+	}
+
+	private void unloadSprite(TerrainChunk chunk) {
+		if (chunk.sprites != null) {
+			chunk.sprites = null;
+			spritesUnloaded++;
+		}
 	}
-}
\ No newline at end of file
+}
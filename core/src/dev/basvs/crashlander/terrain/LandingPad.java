@@ -0,0 +1,41 @@
+package dev.basvs.crashlander.terrain;
+
+/**
+ * A stretch of the landscape that is flat enough and wide enough to land on.
+ */
+public class LandingPad {
+
+	// Edges in world units
+	public float leftX, rightX;
+	// Average height in world units
+	public float height;
+	// Steepest slope of its segments, as rise per unit of x, lower is flatter
+	public float slope;
+
+	// First and last vertex as global segment indices, used to merge pads across chunk edges
+	long firstVertex, lastVertex;
+
+	public float getWidth() {
+		return rightX - leftX;
+	}
+
+	public float getCenterX() {
+		return (leftX + rightX) / 2;
+	}
+
+	/**
+	 * Get the horizontal distance from a position to the pad.
+	 *
+	 * @param x
+	 *            in world units
+	 * @return zero if the position lies above the pad
+	 */
+	public float getDistance(float x) {
+		if (x < leftX) {
+			return leftX - x;
+		} else if (x > rightX) {
+			return x - rightX;
+		}
+		return 0f;
+	}
+}
@@ -0,0 +1,260 @@
+package dev.basvs.crashlander.terrain;
+
+import java.util.Comparator;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Knows where the landscape is flat enough to land. Chunks are added as their heights become known, which finds the
+ * flat runs of segments in them. Runs that meet at a chunk edge are merged, and runs wide enough become landing pads,
+ * kept sorted from left to right. Adding a chunk only looks at that chunk and the pads running into it, and adding it
+ * again after its heights changed replaces what was found before.
+ */
+public class LandingZoneIndex {
+
+	// Rise per unit of x
+	public static final float DEFAULT_MAX_SLOPE = 0.1f;
+	// In world units
+	public static final float DEFAULT_MIN_WIDTH = 15f;
+
+	private static final Comparator<LandingPad> FLATTEST_FIRST = new Comparator<LandingPad>() {
+		@Override
+		public int compare(LandingPad a, LandingPad b) {
+			return Float.compare(a.slope, b.slope);
+		}
+	};
+
+	// A run of flat segments within one chunk
+	private static class Run {
+		int first, last;
+		float slope;
+		float heightSum;
+	}
+
+	private final int segments;
+	private final float segmentWidth;
+	private final float maxSlope, minWidth;
+
+	// Flat runs of each added chunk, from left to right
+	private final IntMap<Array<Run>> chunkRuns = new IntMap<Array<Run>>();
+	// Sorted from left to right, never overlapping
+	private final Array<LandingPad> pads = new Array<LandingPad>();
+
+	/**
+	 * @param segments
+	 *            number of segments per chunk
+	 * @param segmentWidth
+	 *            in world units
+	 * @param maxSlope
+	 *            steepest slope of a segment of a pad, as rise per unit of x
+	 * @param minWidth
+	 *            narrowest pad in world units
+	 */
+	public LandingZoneIndex(int segments, float segmentWidth, float maxSlope, float minWidth) {
+		this.segments = segments;
+		this.segmentWidth = segmentWidth;
+		this.maxSlope = maxSlope;
+		this.minWidth = minWidth;
+	}
+
+	public float getMaxSlope() {
+		return maxSlope;
+	}
+
+	public float getMinWidth() {
+		return minWidth;
+	}
+
+	public boolean contains(int index) {
+		return chunkRuns.containsKey(index);
+	}
+
+	/**
+	 * Get all pads found so far. The array must not be changed.
+	 *
+	 * @return pads sorted from left to right
+	 */
+	public Array<LandingPad> getPads() {
+		return pads;
+	}
+
+	/**
+	 * Find the flat runs of a chunk and update the pads around it.
+	 *
+	 * @param index
+	 * @param heights
+	 *            segments + 1 heights
+	 */
+	public void addChunk(int index, float[] heights) {
+		int low = index;
+		int high = index;
+
+		// Pads that ran into this chunk before may end elsewhere now, so take their chunks along
+		long first = (long) index * segments;
+		long last = first + segments;
+		for (int p = findFirstPadEndingAfter(first); p < pads.size && pads.get(p).firstVertex < last; p++) {
+			LandingPad pad = pads.get(p);
+			low = Math.min(low, getChunk(pad.firstVertex));
+			high = Math.max(high, getChunk(pad.lastVertex - 1));
+		}
+
+		chunkRuns.put(index, findRuns(heights));
+		while (connects(low - 1, low)) {
+			low--;
+		}
+		while (connects(high, high + 1)) {
+			high++;
+		}
+
+		// Remove the pads within the affected chunks and merge their runs again
+		first = (long) low * segments;
+		last = (long) (high + 1) * segments;
+		int p = findFirstPadEndingAfter(first);
+		while (p < pads.size && pads.get(p).firstVertex < last) {
+			pads.removeIndex(p);
+		}
+		LandingPad pad = null;
+		for (int c = low; c <= high; c++) {
+			Array<Run> runs = chunkRuns.get(c);
+			if (runs == null) {
+				continue;
+			}
+			for (Run run : runs) {
+				long runFirst = (long) c * segments + run.first;
+				long runLast = (long) c * segments + run.last;
+				if (pad != null && pad.lastVertex == runFirst) {
+					pad.lastVertex = runLast;
+					pad.slope = Math.max(pad.slope, run.slope);
+					pad.height += run.heightSum;
+				} else {
+					p = insert(pad, p);
+					pad = new LandingPad();
+					pad.firstVertex = runFirst;
+					pad.lastVertex = runLast;
+					pad.slope = run.slope;
+					pad.height = run.heightSum;
+				}
+			}
+		}
+		insert(pad, p);
+	}
+
+	// Finish a merged pad and insert it at a position if it is wide enough, return the next position
+	private int insert(LandingPad pad, int position) {
+		if (pad == null) {
+			return position;
+		}
+		pad.leftX = pad.firstVertex * segmentWidth;
+		pad.rightX = pad.lastVertex * segmentWidth;
+		pad.height /= pad.lastVertex - pad.firstVertex;
+		if (pad.getWidth() < minWidth) {
+			return position;
+		}
+		pads.insert(position, pad);
+		return position + 1;
+	}
+
+	private Array<Run> findRuns(float[] heights) {
+		Array<Run> runs = new Array<Run>(false, 4);
+		Run run = null;
+		for (int s = 0; s < segments; s++) {
+			float slope = Math.abs(heights[s + 1] - heights[s]) / segmentWidth;
+			if (slope > maxSlope) {
+				run = null;
+				continue;
+			}
+			if (run == null) {
+				run = new Run();
+				run.first = s;
+				runs.add(run);
+			}
+			run.last = s + 1;
+			run.slope = Math.max(run.slope, slope);
+			run.heightSum += (heights[s] + heights[s + 1]) / 2;
+		}
+		return runs;
+	}
+
+	// Check whether a flat run of a chunk continues into the next chunk
+	private boolean connects(int left, int right) {
+		Array<Run> leftRuns = chunkRuns.get(left);
+		Array<Run> rightRuns = chunkRuns.get(right);
+		return leftRuns != null && rightRuns != null && leftRuns.size > 0 && rightRuns.size > 0
+				&& leftRuns.peek().last == segments && rightRuns.first().first == 0;
+	}
+
+	private int getChunk(long vertex) {
+		return (int) Math.floor((double) vertex / segments);
+	}
+
+	// Binary search for the first pad that ends after a vertex
+	private int findFirstPadEndingAfter(long vertex) {
+		int low = 0;
+		int high = pads.size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (pads.get(mid).lastVertex <= vertex) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Find the pad nearest to an x position.
+	 *
+	 * @param x
+	 *            in world units
+	 * @return null if no pad was found yet
+	 */
+	public LandingPad findNearest(float x) {
+		// The first pad that ends right of x, or the last one before it, is nearest
+		int low = 0;
+		int high = pads.size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (pads.get(mid).rightX < x) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		LandingPad nearest = low < pads.size ? pads.get(low) : null;
+		if (low > 0 && (nearest == null || pads.get(low - 1).getDistance(x) < nearest.getDistance(x))) {
+			nearest = pads.get(low - 1);
+		}
+		return nearest;
+	}
+
+	/**
+	 * Find the pads overlapping a range, flattest first.
+	 *
+	 * @param left
+	 *            in world units
+	 * @param right
+	 *            in world units
+	 * @param result
+	 *            cleared, then receives the pads
+	 * @return the result
+	 */
+	public Array<LandingPad> findInRange(float left, float right, Array<LandingPad> result) {
+		result.clear();
+		for (int p = findFirstPadEndingAfter((long) Math.floor(left / segmentWidth)); p < pads.size
+				&& pads.get(p).leftX <= right; p++) {
+			LandingPad pad = pads.get(p);
+			if (pad.rightX >= left) {
+				result.add(pad);
+			}
+		}
+		result.sort(FLATTEST_FIRST);
+		return result;
+	}
+
+	public void clear() {
+		chunkRuns.clear();
+		pads.clear();
+	}
+}
@@ -1,55 +1,119 @@
 package dev.basvs.crashlander.terrain;
 
-import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.physics.box2d.World;
-import com.badlogic.gdx.utils.Array;
 import dev.basvs.lib.math.SimplexNoiseGenerator;
 
-public class MountainWorldGenerator implements ILanderWorldGenerator {
+public class MountainWorldGenerator implements ILanderWorldGenerator, ITerrainChunkGenerator {
+
+	public static final float SEGMENT_WIDTH = 2.5f;
+	// Increase when the landscape algorithm changes, so stored landscapes are generated again
+	public static final int ALGORITHM_VERSION = 2;
+	// In world units
+	public static final float DEFAULT_HEIGHT_DELTA = 150;
 
 	private static float overallScale = 0.0025f;
 	private static float[] octaveScale = { 2, 4, 8, 16 };
 	private static float[] octaveAmplitude = { 8, 4, 2, 1 };
 
-	private float heightDelta = 150;
+	private final long seed;
+	private final SimplexNoiseGenerator noise;
+	// Part of the signature, so it cannot change once landscapes are generated from it
+	private final float heightDelta;
+
+	// Noise frequency of each octave per world unit, and amplitudes that sum to one
+	private final float[] frequencies = new float[octaveScale.length];
+	private final float[] amplitudes = new float[octaveAmplitude.length];
+
+	/**
+	 * Create a generator for a new random landscape.
+	 */
+	public MountainWorldGenerator() {
+		this(System.nanoTime());
+	}
+
+	/**
+	 * Create a generator that always generates the same landscape for the same seed.
+	 *
+	 * @param seed
+	 */
+	public MountainWorldGenerator(long seed) {
+		this(seed, DEFAULT_HEIGHT_DELTA);
+	}
+
+	/**
+	 * Create a generator that always generates the same landscape for the same seed and height.
+	 *
+	 * @param seed
+	 * @param heightDelta
+	 *            height of the mountains in world units
+	 */
+	public MountainWorldGenerator(long seed, float heightDelta) {
+		this.seed = seed;
+		this.heightDelta = heightDelta;
+		noise = new SimplexNoiseGenerator(seed);
+		float amplitudeSum = 0;
+		for (int a = 0; a < octaveAmplitude.length; a++) {
+			amplitudeSum += octaveAmplitude[a];
+		}
+		for (int o = 0; o < octaveScale.length; o++) {
+			frequencies[o] = octaveScale[o] * overallScale;
+			amplitudes[o] = octaveAmplitude[o] / amplitudeSum;
+		}
+	}
+
+	public long getSeed() {
+		return seed;
+	}
 
 	public float getHeightDelta() {
 		return heightDelta;
 	}
 
-	public void setHeightDelta(float heightDelta) {
-		this.heightDelta = heightDelta;
+	/**
+	 * Create a lander world with this landscape.
+	 *
+	 * @param width
+	 *            in world units, rounded up to whole chunks, or zero for a landscape without edges
+	 */
+	@Override
+	public LanderWorld generate(World world, Texture groundTexture, float width) {
+		int chunkCount = (int) Math.ceil(width / (SEGMENT_WIDTH * LanderWorld.CHUNK_SEGMENTS));
+		return new LanderWorld(world, groundTexture, this, chunkCount);
 	}
 
 	@Override
-	public LanderWorld generate(World world, float width) {
+	public float getSegmentWidth() {
+		return SEGMENT_WIDTH;
+	}
 
-		SimplexNoiseGenerator.genGrad(System.nanoTime());
+	@Override
+	public long getSignature() {
+		long signature = ALGORITHM_VERSION;
+		signature = signature * 31 + seed;
+		signature = signature * 31 + Float.floatToIntBits(SEGMENT_WIDTH);
+		signature = signature * 31 + Float.floatToIntBits(heightDelta);
+		signature = signature * 31 + Float.floatToIntBits(overallScale);
+		for (int o = 0; o < octaveScale.length; o++) {
+			signature = signature * 31 + Float.floatToIntBits(octaveScale[o]);
+			signature = signature * 31 + Float.floatToIntBits(octaveAmplitude[o]);
+		}
+		return signature;
+	}
 
-		LanderWorld landerWorld = new LanderWorld(world);
+	/**
+	 * Generate the heights of a chunk. Only reads the settings of the generator, so chunks can be generated on
+	 * multiple threads at once.
+	 */
+	@Override
+	public void generateChunk(int index, int segments, float[] heights) {
 
 		// Generate an interesting landscape shape using simplex noise in octaves
 		// TODO: make connection of left & right points more smooth
-		int numberOfVertices = (int) (width / 2.5f);
-		float xStep = width / numberOfVertices;
-		Array<Vector2> landscape = new Array<Vector2>(numberOfVertices);
-		float x = 0;
-		int octaves = octaveScale.length;
-		float amplitudeSum = 0;
-		for (int a = 0; a < octaves; a++) {
-			amplitudeSum += octaveAmplitude[a];
-		}
-		for (int i = 0; i < numberOfVertices; i++) {
-			float noiseSum = 0;
-			for (int o = 0; o < octaves; o++) {
-				noiseSum += (float) SimplexNoiseGenerator.noise(x * octaveScale[o] * overallScale, 0f)
-						* (octaveAmplitude[o] / amplitudeSum);
-			}
-			landscape.add(new Vector2(x, (float) noiseSum * heightDelta));
-			x += xStep;
+		long firstVertex = (long) index * segments;
+		noise.fill(heights, segments + 1, firstVertex * SEGMENT_WIDTH, SEGMENT_WIDTH, frequencies, amplitudes);
+		for (int i = 0; i <= segments; i++) {
+			heights[i] *= heightDelta;
 		}
-
-		landerWorld.setLandscape(landscape);
-		return landerWorld;
 	}
 }
@@ -0,0 +1,200 @@
+package dev.basvs.crashlander.terrain;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Generated terrain stored on disk, so a landscape that was generated before is read instead of generated again. The
+ * file is memory mapped where the platform supports it, so only the chunks that are used are read from disk.
+ *
+ * The file starts with a header holding a format version and everything the contents depend on: the generator
+ * signature, the number of segments per chunk and the level of detail settings. A file whose header does not match
+ * is ignored and replaced. After the header follows one fixed-size record per chunk: the heights, then for each
+ * simplified level of detail the number of kept vertices and their indices.
+ */
+public class TerrainCacheFile {
+
+	// "CLTC"
+	public static final int MAGIC = 0x434c5443;
+	// Increase when the layout of the file changes
+	public static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 36;
+
+	private final ByteBuffer buffer;
+	private final int segments, lodLevels, firstChunk, chunkCount;
+	private final int recordBytes;
+
+	private TerrainCacheFile(ByteBuffer buffer, int segments, int lodLevels, int firstChunk, int chunkCount) {
+		this.buffer = buffer;
+		this.segments = segments;
+		this.lodLevels = lodLevels;
+		this.firstChunk = firstChunk;
+		this.chunkCount = chunkCount;
+		recordBytes = getRecordBytes(segments, lodLevels);
+	}
+
+	/**
+	 * Get the name of the cache file for a generator, so landscapes with different seeds or settings get their own
+	 * file.
+	 *
+	 * @param generator
+	 * @return
+	 */
+	public static String getFileName(ITerrainChunkGenerator generator) {
+		return "terrain-" + Long.toHexString(generator.getSignature()) + ".bin";
+	}
+
+	/**
+	 * Open the cache file for a range of chunks, or create it if it does not exist or is out of date.
+	 *
+	 * @param directory
+	 * @param generator
+	 * @param firstChunk
+	 * @param chunkCount
+	 * @return
+	 * @throws IOException
+	 */
+	public static TerrainCacheFile openOrCreate(FileHandle directory, ITerrainChunkGenerator generator,
+			int firstChunk, int chunkCount) throws IOException {
+		FileHandle file = directory.child(getFileName(generator));
+		TerrainCacheFile cacheFile = open(file, generator, firstChunk, chunkCount);
+		if (cacheFile == null) {
+			write(file, generator, firstChunk, chunkCount);
+			cacheFile = open(file, generator, firstChunk, chunkCount);
+		}
+		return cacheFile;
+	}
+
+	/**
+	 * Open a cache file.
+	 *
+	 * @param file
+	 * @param generator
+	 * @param firstChunk
+	 * @param chunkCount
+	 * @return null if the file does not exist, or was not made with the same generator, chunk range and level of
+	 *         detail settings
+	 */
+	public static TerrainCacheFile open(FileHandle file, ITerrainChunkGenerator generator, int firstChunk,
+			int chunkCount) {
+		if (!file.exists() || file.length() < HEADER_BYTES) {
+			return null;
+		}
+		ByteBuffer buffer;
+		try {
+			buffer = file.map();
+		} catch (GdxRuntimeException e) {
+			// Memory mapping is not supported for this file, read it instead
+			buffer = ByteBuffer.wrap(file.readBytes());
+		}
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		int segments = LanderWorld.CHUNK_SEGMENTS;
+		int lodLevels = LanderWorld.LOD_LEVELS;
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(8) != generator.getSignature()
+				|| buffer.getInt(16) != segments || buffer.getInt(20) != lodLevels
+				|| buffer.getInt(24) != Float.floatToIntBits(LanderWorld.LOD_PIXEL_ERROR)
+				|| buffer.getInt(28) != firstChunk || buffer.getInt(32) != chunkCount
+				|| buffer.capacity() != HEADER_BYTES + (long) chunkCount * getRecordBytes(segments, lodLevels)) {
+			return null;
+		}
+		return new TerrainCacheFile(buffer, segments, lodLevels, firstChunk, chunkCount);
+	}
+
+	/**
+	 * Generate a range of chunks and write them to a cache file.
+	 *
+	 * @param file
+	 * @param generator
+	 * @param firstChunk
+	 * @param chunkCount
+	 * @throws IOException
+	 */
+	public static void write(FileHandle file, ITerrainChunkGenerator generator, int firstChunk, int chunkCount)
+			throws IOException {
+		int segments = LanderWorld.CHUNK_SEGMENTS;
+		int lodLevels = LanderWorld.LOD_LEVELS;
+		float[] heights = new float[segments + 1];
+		int[] kept = new int[segments + 1];
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(generator.getSignature());
+			out.writeInt(segments);
+			out.writeInt(lodLevels);
+			out.writeInt(Float.floatToIntBits(LanderWorld.LOD_PIXEL_ERROR));
+			out.writeInt(firstChunk);
+			out.writeInt(chunkCount);
+			for (int c = firstChunk; c < firstChunk + chunkCount; c++) {
+				generator.generateChunk(c, segments, heights);
+				for (float height : heights) {
+					out.writeFloat(height);
+				}
+				for (int level = 1; level < lodLevels; level++) {
+					int count = HeightfieldSimplifier.simplify(heights, LanderWorld.getLodTolerance(level), kept);
+					out.writeByte(count);
+					for (int i = 0; i <= segments; i++) {
+						out.writeByte(i < count ? kept[i] : 0);
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	// Heights, then per simplified level a count and one byte per vertex
+	private static int getRecordBytes(int segments, int lodLevels) {
+		return (segments + 1) * 4 + (lodLevels - 1) * (segments + 2);
+	}
+
+	public boolean contains(int index) {
+		return index >= firstChunk && index < firstChunk + chunkCount;
+	}
+
+	/**
+	 * Read the heights of a chunk.
+	 *
+	 * @param index
+	 *            a chunk this file contains
+	 * @param heights
+	 *            receives segments + 1 heights
+	 */
+	public void readHeights(int index, float[] heights) {
+		int position = getRecordPosition(index);
+		for (int i = 0; i <= segments; i++) {
+			heights[i] = buffer.getFloat(position + i * 4);
+		}
+	}
+
+	/**
+	 * Read the vertices kept by a simplified level of detail of a chunk.
+	 *
+	 * @param index
+	 *            a chunk this file contains
+	 * @param level
+	 *            at least 1
+	 * @param kept
+	 *            receives the indices of the kept vertices
+	 * @return number of kept vertices
+	 */
+	public int readKept(int index, int level, int[] kept) {
+		int position = getRecordPosition(index) + (segments + 1) * 4 + (level - 1) * (segments + 2);
+		int count = buffer.get(position) & 0xff;
+		for (int i = 0; i < count; i++) {
+			kept[i] = buffer.get(position + 1 + i) & 0xff;
+		}
+		return count;
+	}
+
+	private int getRecordPosition(int index) {
+		return HEADER_BYTES + (index - firstChunk) * recordBytes;
+	}
+}
@@ -0,0 +1,24 @@
+package dev.basvs.crashlander.terrain;
+
+import com.badlogic.gdx.graphics.g2d.PolygonSprite;
+import com.badlogic.gdx.physics.box2d.Body;
+
+/**
+ * A fixed-width piece of the landscape. Its physics body and its sprite only exist while the chunk is near the lander
+ * or the camera.
+ */
+public class TerrainChunk {
+
+	public int index;
+	public float leftX, rightX;
+	// Heights of the vertices from left to right, neighbouring chunks share their edge vertex
+	public float[] heights;
+
+	// Null while not loaded
+	public Body body;
+	// One sprite per level of detail, from full detail to the most simplified
+	public PolygonSprite[] sprites;
+
+	// Used while deciding which chunks to load and unload
+	boolean load, keep;
+}
@@ -0,0 +1,169 @@
+package dev.basvs.crashlander.terrain;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the heights of recently used chunks, so flying back over the same area does not generate them again. When
+ * the cache grows beyond its memory bound the least recently used chunks are dropped.
+ */
+public class TerrainChunkCache {
+
+	public static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+	// Rough size of a cached float array and its map entry, on top of the heights themselves
+	private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+	private final ITerrainChunkGenerator generator;
+	private final int segments;
+	private final long maxBytes;
+	private long bytes = 0;
+
+	// Optional, chunks stored in it are read instead of generated
+	private TerrainCacheFile file;
+
+	// Ordered from least to most recently used
+	private final LinkedHashMap<Integer, float[]> chunks = new LinkedHashMap<Integer, float[]>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+			if (bytes > maxBytes) {
+				bytes -= entryBytes(eldest.getValue());
+				evictions++;
+				return true;
+			}
+			return false;
+		}
+	};
+
+	// Statistics
+	private long hits = 0, misses = 0, evictions = 0, fileReads = 0;
+
+	/**
+	 * @param generator
+	 * @param segments
+	 *            number of segments per chunk
+	 * @param maxBytes
+	 *            approximate memory bound
+	 */
+	public TerrainChunkCache(ITerrainChunkGenerator generator, int segments, long maxBytes) {
+		this.generator = generator;
+		this.segments = segments;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Get the heights of a chunk, generating them if they are not cached. The returned array must not be changed.
+	 * 
+	 * @param index
+	 * @return segments + 1 heights in world units
+	 */
+	public float[] getHeights(int index) {
+		float[] heights = chunks.get(index);
+		if (heights != null) {
+			hits++;
+			return heights;
+		}
+		misses++;
+		heights = new float[segments + 1];
+		if (file != null && file.contains(index)) {
+			file.readHeights(index, heights);
+			fileReads++;
+		} else {
+			generator.generateChunk(index, segments, heights);
+		}
+		bytes += entryBytes(heights);
+		chunks.put(index, heights);
+		return heights;
+	}
+
+	/**
+	 * Get the heights of a chunk only if they are cached, without counting a hit or miss.
+	 * 
+	 * @param index
+	 * @return null if not cached
+	 */
+	public float[] peekHeights(int index) {
+		return chunks.get(index);
+	}
+
+	/**
+	 * Add heights that were generated elsewhere, unless the chunk is already cached.
+	 * 
+	 * @param index
+	 * @param heights
+	 *            segments + 1 heights, must not be changed afterwards
+	 */
+	public void putHeights(int index, float[] heights) {
+		if (!chunks.containsKey(index)) {
+			bytes += entryBytes(heights);
+			chunks.put(index, heights);
+		}
+	}
+
+	private static long entryBytes(float[] heights) {
+		return heights.length * 4 + ENTRY_OVERHEAD_BYTES;
+	}
+
+	public TerrainCacheFile getFile() {
+		return file;
+	}
+
+	/**
+	 * Read chunks from a file when it has them, instead of generating them.
+	 * 
+	 * @param file
+	 *            null to always generate
+	 */
+	public void setFile(TerrainCacheFile file) {
+		this.file = file;
+	}
+
+	public int getSegments() {
+		return segments;
+	}
+
+	public int getSize() {
+		return chunks.size();
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Get the number of misses that were read from the file instead of generated since the last reset.
+	 * 
+	 * @return
+	 */
+	public long getFileReads() {
+		return fileReads;
+	}
+
+	public void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		fileReads = 0;
+	}
+
+	public void clear() {
+		chunks.clear();
+		bytes = 0;
+	}
+}
@@ -0,0 +1,14 @@
+package dev.basvs.crashlander.terrain;
+
+/**
+ * Everything needed to draw a chunk, prepared without touching graphics or physics so it can be made on any thread.
+ * Sprites are made from it on the render thread.
+ */
+public class TerrainChunkMesh {
+
+	public int index;
+	public float[] heights;
+	// Per level of detail the polygon vertices in render units and the triangle indices, which are shared
+	public float[][] vertices;
+	public short[][] triangles;
+}
@@ -0,0 +1,110 @@
+package dev.basvs.crashlander.terrain;
+
+import dev.basvs.crashlander.GameScreen;
+
+/**
+ * Turns the heights of a chunk into the polygons of all its levels of detail. Does not use the chunk cache and only
+ * reads shared data, so chunks can be built on several threads at once.
+ */
+public class TerrainMeshBuilder {
+
+	private final ITerrainChunkGenerator generator;
+	private final HeightfieldTriangulator triangulator = new HeightfieldTriangulator();
+	private final int segments;
+	private final float segmentWidth, chunkWidth;
+
+	// Optional, chunks stored in it are read instead of generated and simplified
+	private volatile TerrainCacheFile file;
+
+	/**
+	 * @param generator
+	 * @param segments
+	 *            number of segments per chunk
+	 */
+	public TerrainMeshBuilder(ITerrainChunkGenerator generator, int segments) {
+		this.generator = generator;
+		this.segments = segments;
+		segmentWidth = generator.getSegmentWidth();
+		chunkWidth = segmentWidth * segments;
+	}
+
+	public float getChunkWidth() {
+		return chunkWidth;
+	}
+
+	public TerrainCacheFile getFile() {
+		return file;
+	}
+
+	/**
+	 * Read chunks from a file when it has them, instead of generating and simplifying them.
+	 * 
+	 * @param file
+	 *            null to always generate
+	 */
+	public void setFile(TerrainCacheFile file) {
+		this.file = file;
+	}
+
+	/**
+	 * Build the polygons of a chunk with generated heights.
+	 * 
+	 * @param index
+	 * @param heights
+	 *            heights of the chunk, or null to read or generate them
+	 * @return
+	 */
+	public TerrainChunkMesh build(int index, float[] heights) {
+		return build(index, heights, false);
+	}
+
+	/**
+	 * Build the polygons of a chunk.
+	 * 
+	 * @param index
+	 * @param heights
+	 *            heights of the chunk, or null to read or generate them
+	 * @param deformed
+	 *            whether the heights differ from the generated ones, so the cache file cannot be used
+	 * @return
+	 */
+	public TerrainChunkMesh build(int index, float[] heights, boolean deformed) {
+		TerrainCacheFile file = this.file;
+		boolean stored = !deformed && file != null && file.contains(index);
+		if (heights == null) {
+			heights = new float[segments + 1];
+			if (stored) {
+				file.readHeights(index, heights);
+			} else {
+				generator.generateChunk(index, segments, heights);
+			}
+		}
+		TerrainChunkMesh mesh = new TerrainChunkMesh();
+		mesh.index = index;
+		mesh.heights = heights;
+		mesh.vertices = new float[LanderWorld.LOD_LEVELS][];
+		mesh.triangles = new short[LanderWorld.LOD_LEVELS][];
+		int[] kept = new int[heights.length];
+		float leftX = index * chunkWidth;
+		float bottom = LanderWorld.LANDSCAPE_POLYGON_BOTTOM_Y * GameScreen.WORLD_TO_RENDER;
+		for (int level = 0; level < LanderWorld.LOD_LEVELS; level++) {
+			int columns;
+			if (level == 0) {
+				columns = heights.length;
+			} else if (stored) {
+				columns = file.readKept(index, level, kept);
+			} else {
+				columns = HeightfieldSimplifier.simplify(heights, LanderWorld.getLodTolerance(level), kept);
+			}
+			float[] vertices = new float[columns * 4];
+			for (int c = 0; c < columns; c++) {
+				int i = level == 0 ? c : kept[c];
+				HeightfieldTriangulator.setColumn(vertices, c, (leftX + i * segmentWidth) * GameScreen.WORLD_TO_RENDER,
+						heights[i] * GameScreen.WORLD_TO_RENDER, bottom);
+			}
+			mesh.vertices[level] = vertices;
+			mesh.triangles[level] = triangulator.getTriangles(columns);
+		}
+		return mesh;
+	}
+}
@@ -0,0 +1,344 @@
+package dev.basvs.crashlander.terrain;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Builds chunk meshes on background threads, so chunks coming into view do not have to be generated while a frame is
+ * drawn. Requests wait in a bounded queue, and a free worker always takes the waiting chunk nearest to the focus,
+ * normally the lander. When the queue is full a request nearer to the focus replaces the farthest waiting one.
+ * Finished meshes are collected on the render thread with {@link #poll()}; only that thread creates sprites and
+ * bodies.
+ */
+public class TerrainPipeline implements Disposable {
+
+	public static final int DEFAULT_MAX_PENDING = 64;
+
+	private static class Job {
+		final int index;
+		final float[] heights;
+		final boolean deformed;
+		boolean running;
+		// Set by the worker before the job is handed over
+		TerrainChunkMesh mesh;
+		RuntimeException error;
+		volatile boolean cancelled;
+
+		Job(int index, float[] heights, boolean deformed) {
+			this.index = index;
+			this.heights = heights;
+			this.deformed = deformed;
+		}
+	}
+
+	private final TerrainMeshBuilder builder;
+	private final float chunkWidth;
+	private final int maxPending;
+
+	// Requested chunks that have not been polled yet, guarded by the lock
+	private final Object lock = new Object();
+	private final IntMap<Job> jobs = new IntMap<Job>();
+	private int pendingCount = 0;
+	private boolean running = true;
+
+	private final ConcurrentLinkedQueue<Job> finished = new ConcurrentLinkedQueue<Job>();
+	private final Thread[] workers;
+
+	private volatile float focusX;
+
+	// Statistics, guarded by the lock
+	private long requested = 0, rejected = 0, cancelled = 0, completed = 0;
+
+	/**
+	 * Create a pipeline and start its worker threads.
+	 *
+	 * @param builder
+	 * @param threads
+	 *            number of worker threads
+	 */
+	public TerrainPipeline(TerrainMeshBuilder builder, int threads) {
+		this(builder, threads, DEFAULT_MAX_PENDING);
+	}
+
+	/**
+	 * Create a pipeline and start its worker threads.
+	 *
+	 * @param builder
+	 * @param threads
+	 *            number of worker threads
+	 * @param maxPending
+	 *            maximum number of chunks waiting for a worker
+	 */
+	public TerrainPipeline(TerrainMeshBuilder builder, int threads, int maxPending) {
+		this.builder = builder;
+		this.maxPending = maxPending;
+		chunkWidth = builder.getChunkWidth();
+		workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			}, "terrain-" + t);
+			workers[t].setDaemon(true);
+			workers[t].setPriority(Thread.NORM_PRIORITY - 1);
+			workers[t].start();
+		}
+	}
+
+	public float getFocusX() {
+		return focusX;
+	}
+
+	/**
+	 * Set the position that waiting chunks are prioritized by, nearest first.
+	 *
+	 * @param focusX
+	 *            in world units
+	 */
+	public void setFocusX(float focusX) {
+		this.focusX = focusX;
+	}
+
+	/**
+	 * Ask for the mesh of a chunk with generated heights. Does nothing if the chunk was already requested and not yet
+	 * polled.
+	 *
+	 * @param index
+	 * @param heights
+	 *            heights of the chunk if they are known, otherwise null; must not be changed afterwards
+	 * @return false if the queue is full of chunks nearer to the focus, so the request should be made again later
+	 */
+	public boolean request(int index, float[] heights) {
+		return request(index, heights, false);
+	}
+
+	/**
+	 * Ask for the mesh of a chunk. Does nothing if the chunk was already requested and not yet polled.
+	 *
+	 * @param index
+	 * @param heights
+	 *            heights of the chunk if they are known, otherwise null; must not be changed afterwards
+	 * @param deformed
+	 *            whether the heights differ from the generated ones
+	 * @return false if the queue is full of chunks nearer to the focus, so the request should be made again later
+	 */
+	public boolean request(int index, float[] heights, boolean deformed) {
+		synchronized (lock) {
+			if (!running) {
+				return false;
+			}
+			if (jobs.containsKey(index)) {
+				return true;
+			}
+			if (pendingCount >= maxPending) {
+				Job farthest = null;
+				for (Job job : jobs.values()) {
+					if (!job.running && (farthest == null || distance(job.index) > distance(farthest.index))) {
+						farthest = job;
+					}
+				}
+				if (farthest == null || distance(farthest.index) <= distance(index)) {
+					rejected++;
+					return false;
+				}
+				jobs.remove(farthest.index);
+				pendingCount--;
+				cancelled++;
+			}
+			jobs.put(index, new Job(index, heights, deformed));
+			pendingCount++;
+			requested++;
+			lock.notify();
+			return true;
+		}
+	}
+
+	/**
+	 * Cancel a requested chunk, for example because its heights changed. A mesh that is being built for it is never
+	 * returned by {@link #poll()}.
+	 *
+	 * @param index
+	 */
+	public void cancel(int index) {
+		synchronized (lock) {
+			Job job = jobs.remove(index);
+			if (job != null) {
+				cancel(job);
+			}
+		}
+	}
+
+	/**
+	 * Cancel all requested chunks outside a range. Chunks that are being built are finished, but never returned by
+	 * {@link #poll()}.
+	 *
+	 * @param first
+	 *            index of the first chunk to keep
+	 * @param last
+	 *            index of the last chunk to keep
+	 */
+	public void cancelOutside(int first, int last) {
+		synchronized (lock) {
+			IntMap.Values<Job> values = jobs.values();
+			while (values.hasNext()) {
+				Job job = values.next();
+				if (job.index < first || job.index > last) {
+					cancel(job);
+					values.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cancel all requested chunks.
+	 */
+	public void cancelAll() {
+		synchronized (lock) {
+			for (Job job : jobs.values()) {
+				cancel(job);
+			}
+			jobs.clear();
+		}
+	}
+
+	// Call while holding the lock, and remove the job from the map afterwards
+	private void cancel(Job job) {
+		job.cancelled = true;
+		if (!job.running) {
+			pendingCount--;
+		}
+		cancelled++;
+	}
+
+	/**
+	 * Take a finished chunk mesh. Only call this from the render thread.
+	 *
+	 * @return null if no mesh is finished
+	 */
+	public TerrainChunkMesh poll() {
+		Job job;
+		while ((job = finished.poll()) != null) {
+			if (job.cancelled) {
+				continue;
+			}
+			synchronized (lock) {
+				jobs.remove(job.index);
+				completed++;
+			}
+			if (job.error != null) {
+				throw new GdxRuntimeException("Building terrain chunk " + job.index + " failed", job.error);
+			}
+			return job.mesh;
+		}
+		return null;
+	}
+
+	private void work() {
+		while (true) {
+			Job job;
+			synchronized (lock) {
+				while (running && pendingCount == 0) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (!running) {
+					return;
+				}
+				job = takeNearest();
+			}
+			try {
+				job.mesh = builder.build(job.index, job.heights, job.deformed);
+			} catch (RuntimeException e) {
+				job.error = e;
+			}
+			finished.add(job);
+		}
+	}
+
+	// Call while holding the lock, with at least one job waiting
+	private Job takeNearest() {
+		Job nearest = null;
+		for (Job job : jobs.values()) {
+			if (!job.running && (nearest == null || distance(job.index) < distance(nearest.index))) {
+				nearest = job;
+			}
+		}
+		nearest.running = true;
+		pendingCount--;
+		return nearest;
+	}
+
+	private float distance(int index) {
+		return Math.abs((index + 0.5f) * chunkWidth - focusX);
+	}
+
+	/**
+	 * Get the number of chunks waiting for a worker.
+	 *
+	 * @return
+	 */
+	public int getPendingCount() {
+		synchronized (lock) {
+			return pendingCount;
+		}
+	}
+
+	public long getRequested() {
+		synchronized (lock) {
+			return requested;
+		}
+	}
+
+	/**
+	 * Get the number of requests turned down because the queue was full since the last reset.
+	 *
+	 * @return
+	 */
+	public long getRejected() {
+		synchronized (lock) {
+			return rejected;
+		}
+	}
+
+	public long getCancelled() {
+		synchronized (lock) {
+			return cancelled;
+		}
+	}
+
+	public long getCompleted() {
+		synchronized (lock) {
+			return completed;
+		}
+	}
+
+	public void resetStatistics() {
+		synchronized (lock) {
+			requested = 0;
+			rejected = 0;
+			cancelled = 0;
+			completed = 0;
+		}
+	}
+
+	/**
+	 * Stop the worker threads. Requests made afterwards are turned down.
+	 */
+	@Override
+	public void dispose() {
+		synchronized (lock) {
+			running = false;
+			lock.notifyAll();
+		}
+		cancelAll();
+	}
+}
@@ -1,5 +1,7 @@
 package dev.basvs.lib.game;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Stack;
 
 import com.badlogic.gdx.ApplicationListener;
@@ -7,17 +9,21 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.Preferences;
 import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.Pixmap.Format;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.input.GestureDetector;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.utils.viewport.FitViewport;
+import dev.basvs.lib.profile.FrameProfiler;
 
 public abstract class AbstractGame implements ApplicationListener {
 
 	public static final long ONE_SECOND_NS = 1000000000;
-	public static final int MAX_FPS = 60;
+	public static final int DEFAULT_TARGET_FPS = 60;
+	public static final PacingMode DEFAULT_PACING_MODE = PacingMode.Precise;
+	public static final int DEFAULT_TICK_RATE = 60;
 	public static final float FADE_DURATION_S = 0.15f;
 
 	public enum ScreenState {
@@ -36,9 +42,24 @@ public abstract class AbstractGame implements ApplicationListener {
 
 	// Timing stuff
 	private int maxUpdates = 10;
+	private int tickRate = DEFAULT_TICK_RATE;
+	private long tickDuration = ONE_SECOND_NS / DEFAULT_TICK_RATE;
+	// Time not yet simulated, always less than one tick after updating
+	private long accumulator = 0;
 	private long lastTime = System.nanoTime();
+	// Fraction of a tick that has passed since the last update, used to interpolate when rendering
+	private float alpha = 1f;
 	private boolean paused = false;
-	private boolean useYield = false;
+	private FramePacer framePacer = new FramePacer(DEFAULT_PACING_MODE, DEFAULT_TARGET_FPS);
+
+	// Profiling
+	private FrameProfiler profiler = new FrameProfiler();
+	private final int framePhase = profiler.addPhase("frame");
+	private final int updatePhase = profiler.addPhase("update");
+	private final int renderPhase = profiler.addPhase("render");
+	private final int pacingPhase = profiler.addPhase("pacing");
+	// Whether the profile is written to files when the game exits
+	private boolean dumpProfileOnExit = false;
 
 	// Asset loading
 	private AssetManager assets = new AssetManager();
@@ -76,6 +97,116 @@ public abstract class AbstractGame implements ApplicationListener {
 		return assets;
 	}
 
+	/**
+	 * Get the profiler that times the phases of each frame. Screens can add their own phases.
+	 * 
+	 * @return
+	 */
+	public FrameProfiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Write the profiler statistics to CSV and JSON files in local storage.
+	 */
+	public void dumpProfile() {
+		String baseName = "profile/frame-profile-" + System.currentTimeMillis();
+		try {
+			writeProfile(Gdx.files.local(baseName + ".csv"), false);
+			writeProfile(Gdx.files.local(baseName + ".json"), true);
+			Gdx.app.log("AbstractGame", "Frame profile written to " + baseName + ".csv/.json");
+		} catch (Exception e) {
+			Gdx.app.error("AbstractGame", "Could not write frame profile", e);
+		}
+	}
+
+	public boolean isDumpProfileOnExit() {
+		return dumpProfileOnExit;
+	}
+
+	/**
+	 * Set whether the profile is written to files when the game exits, see {@link #dumpProfile()}. Off by default.
+	 * 
+	 * @param dumpProfileOnExit
+	 */
+	public void setDumpProfileOnExit(boolean dumpProfileOnExit) {
+		this.dumpProfileOnExit = dumpProfileOnExit;
+	}
+
+	private void writeProfile(FileHandle file, boolean json) throws IOException {
+		Writer writer = file.writer(false, "UTF-8");
+		try {
+			if (json) {
+				profiler.writeJson(writer);
+			} else {
+				profiler.writeCsv(writer);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Get the frame limiter, for its statistics.
+	 * 
+	 * @return
+	 */
+	public FramePacer getFramePacer() {
+		return framePacer;
+	}
+
+	/**
+	 * Set the maximum number of frames per second, or zero for no limit, and store it in the preferences.
+	 * 
+	 * @param targetFps
+	 */
+	public void setTargetFps(int targetFps) {
+		framePacer.setTargetFps(targetFps);
+		prefs.putInteger("targetFps", targetFps);
+		prefs.flush();
+	}
+
+	/**
+	 * Set the way of waiting for the end of each frame, and store it in the preferences.
+	 * 
+	 * @param pacingMode
+	 */
+	public void setPacingMode(PacingMode pacingMode) {
+		framePacer.setMode(pacingMode);
+		prefs.putString("pacingMode", pacingMode.name());
+		prefs.flush();
+	}
+
+	/**
+	 * Get the number of fixed time step updates per second.
+	 * 
+	 * @return
+	 */
+	public int getTickRate() {
+		return tickRate;
+	}
+
+	/**
+	 * Set the number of fixed time step updates per second. This is independent of the frame rate: rendering
+	 * interpolates between the last two updates.
+	 * 
+	 * @param tickRate
+	 */
+	public void setTickRate(int tickRate) {
+		this.tickRate = tickRate;
+		tickDuration = ONE_SECOND_NS / tickRate;
+		accumulator = 0;
+	}
+
+	/**
+	 * Get the duration of a single update in seconds.
+	 * 
+	 * @return
+	 */
+	public float getTickSeconds() {
+		return tickDuration / (float) ONE_SECOND_NS;
+	}
+
 	/**
 	 * Activate a new screen on top of the current screen.
 	 * 
@@ -152,11 +283,21 @@ public abstract class AbstractGame implements ApplicationListener {
 			effectsVolume = prefs.getFloat("effectsVolume", 0.5f);
 			guiVolume = prefs.getFloat("guiVolume", 0.5f);
 			musicVolume = prefs.getFloat("musicVolume", 0.5f);
+			setTickRate(prefs.getInteger("tickRate", DEFAULT_TICK_RATE));
+			profiler.setEnabled(prefs.getBoolean("profiler", true));
+			dumpProfileOnExit = prefs.getBoolean("dumpProfileOnExit", false);
+			framePacer.setTargetFps(prefs.getInteger("targetFps", DEFAULT_TARGET_FPS));
+			try {
+				framePacer.setMode(PacingMode.valueOf(prefs.getString("pacingMode", DEFAULT_PACING_MODE.name())));
+			} catch (IllegalArgumentException e) {
+				// Unknown mode, keep the default
+			}
 
 			// Do user initialization
 			onCreate();
 			// Setup timer
 			lastTime = System.nanoTime();
+			framePacer.skipFrame();
 
 		} catch (Exception e) {
 			Gdx.app.error("AbstractGame", "Uncaught exception in main loop, shutting down...", e);
@@ -187,6 +328,7 @@ public abstract class AbstractGame implements ApplicationListener {
 	@Override
 	public void render() {
 		try {
+			profiler.begin(framePhase);
 			long time = System.nanoTime();
 			long timeDelta = time - lastTime;
 			float timeDeltaSeconds = timeDelta / (float) ONE_SECOND_NS;
@@ -249,27 +391,29 @@ public abstract class AbstractGame implements ApplicationListener {
 
 				}
 
-				// Always update the topmost screen'
+				// Always update the topmost screen
 				if (!screens.isEmpty()) {
 					if (screens.peek().isLoadingScreen()) {
 						// Update the loading screen without using a fixed timestep
 						screens.peek().update(timeDeltaSeconds);
+						alpha = 1f;
 
-					} else {
-						// Update the game state in capped time steps (in case we're running too slow)
-						int updateCount = 0;
-						while (timeDelta > 0 && (maxUpdates <= 0 || updateCount < maxUpdates) && !paused) {
-							// Update using a time step in seconds
-							long updateTimeStep = Math.min(timeDelta, ONE_SECOND_NS / MAX_FPS);
-							float updateTimeStepSeconds = updateTimeStep / (float) ONE_SECOND_NS;
-
-							screens.peek().update(updateTimeStepSeconds);
-							screens.peek().guiStage.act(Gdx.graphics.getDeltaTime());
-
-							timeDelta -= updateTimeStep;
-							updateCount++;
+					} else if (!paused) {
+						// Update the game state in fixed time steps, dropping time if we're running too slow
+						accumulator += timeDelta;
+						if (maxUpdates > 0 && accumulator > maxUpdates * tickDuration) {
+							accumulator = maxUpdates * tickDuration;
 						}
+						float tickSeconds = tickDuration / (float) ONE_SECOND_NS;
+						while (accumulator >= tickDuration) {
+							profiler.begin(updatePhase);
+							screens.peek().update(tickSeconds);
+							profiler.end(updatePhase);
+							accumulator -= tickDuration;
+						}
+						alpha = accumulator / (float) tickDuration;
 					}
+					screens.peek().guiStage.act(timeDeltaSeconds);
 				}
 			}
 
@@ -277,9 +421,10 @@ public abstract class AbstractGame implements ApplicationListener {
 			guiCamera.update();
 
 			// Render the topmost screen
+			profiler.begin(renderPhase);
 			if (!screens.isEmpty()) {
 				batch.setProjectionMatrix(camera.combined);
-				screens.peek().render();
+				screens.peek().render(alpha);
 				// Render the GUI on top of everything
 				// TODO: guicam stil required?
 				batch.setProjectionMatrix(guiCamera.combined);
@@ -293,19 +438,16 @@ public abstract class AbstractGame implements ApplicationListener {
 					batch.end();
 				}
 			}
+			profiler.end(renderPhase);
+			profiler.end(framePhase);
 
 			if (screens.isEmpty() || !screens.peek().isLoadingScreen()) {
 				// Limit the maximum FPS if this is not a loading screen
-				long sleepTime = Math.round((ONE_SECOND_NS / MAX_FPS) - (System.nanoTime() - lastTime));
-				if (sleepTime <= 0)
-					return;
-				long prevTime = System.nanoTime();
-				while (System.nanoTime() - prevTime <= sleepTime) {
-					if (useYield)
-						Thread.yield(); // More smooth, high CPU usage
-					else
-						Thread.sleep(1); // Less smooth, lower CPU usage
-				}
+				profiler.begin(pacingPhase);
+				framePacer.endFrame();
+				profiler.end(pacingPhase);
+			} else {
+				framePacer.skipFrame();
 			}
 
 		} catch (Exception e) {
@@ -354,6 +496,9 @@ public abstract class AbstractGame implements ApplicationListener {
 				screen.onDispose();
 			}
 			onDispose();
+			if (profiler.isEnabled() && dumpProfileOnExit) {
+				dumpProfile();
+			}
 			// Dispose of all assets
 			assets.dispose();
 		} catch (Exception e) {
@@ -64,9 +64,23 @@ public abstract class AbstractScreen extends ChangeListener implements InputProc
 
 	public abstract void onDeactivate();
 
+	/**
+	 * Update the screen state. Unless this is a loading screen, delta is always the fixed tick duration of the game.
+	 * 
+	 * @param delta
+	 * @throws Exception
+	 */
 	public abstract void update(float delta) throws Exception;
 
-	public abstract void render() throws Exception;
+	/**
+	 * Render the screen.
+	 * 
+	 * @param alpha
+	 *            fraction of a tick that has passed since the last update, for interpolating between the previous and
+	 *            the current state
+	 * @throws Exception
+	 */
+	public abstract void render(float alpha) throws Exception;
 
 	public abstract void onResize(int width, int height) throws Exception;
 
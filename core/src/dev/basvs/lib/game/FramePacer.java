@@ -0,0 +1,127 @@
+package dev.basvs.lib.game;
+
+/**
+ * Limits the frame rate by waiting at the end of each frame until a fixed schedule of deadlines, and keeps statistics
+ * on how well the deadlines were met.
+ */
+public class FramePacer {
+
+	private PacingMode mode;
+	private int targetFps;
+	private long frameDuration;
+
+	// End of the current frame in System.nanoTime() units
+	private long deadline = System.nanoTime();
+
+	// Statistics
+	private long frames = 0;
+	private long deadlineMisses = 0;
+	private long totalOversleep = 0;
+	private long maxOversleep = 0;
+
+	public FramePacer(PacingMode mode, int targetFps) {
+		setMode(mode);
+		setTargetFps(targetFps);
+	}
+
+	public PacingMode getMode() {
+		return mode;
+	}
+
+	public void setMode(PacingMode mode) {
+		this.mode = mode;
+	}
+
+	public int getTargetFps() {
+		return targetFps;
+	}
+
+	/**
+	 * Set the maximum number of frames per second, or zero for no limit.
+	 * 
+	 * @param targetFps
+	 */
+	public void setTargetFps(int targetFps) {
+		this.targetFps = targetFps;
+		frameDuration = targetFps > 0 ? AbstractGame.ONE_SECOND_NS / targetFps : 0;
+	}
+
+	/**
+	 * Wait until the end of the current frame. Frames that already took too long are counted as a deadline miss and
+	 * restart the schedule, so we do not try to catch up by rendering frames back to back.
+	 */
+	public void endFrame() {
+		long now = System.nanoTime();
+		if (frameDuration <= 0 || mode == PacingMode.Off) {
+			deadline = now;
+			return;
+		}
+
+		frames++;
+		deadline += frameDuration;
+		if (now >= deadline) {
+			deadlineMisses++;
+			deadline = now;
+			return;
+		}
+
+		mode.waitUntil(deadline);
+
+		long oversleep = System.nanoTime() - deadline;
+		totalOversleep += oversleep;
+		if (oversleep > maxOversleep) {
+			maxOversleep = oversleep;
+		}
+	}
+
+	/**
+	 * Restart the schedule from now without waiting, for instance after a loading screen.
+	 */
+	public void skipFrame() {
+		deadline = System.nanoTime();
+	}
+
+	/**
+	 * Get the number of paced frames since the last reset.
+	 * 
+	 * @return
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Get the number of frames that were not finished before their deadline.
+	 * 
+	 * @return
+	 */
+	public long getDeadlineMisses() {
+		return deadlineMisses;
+	}
+
+	/**
+	 * Get the average time in nanoseconds that waiting overshot the deadline.
+	 * 
+	 * @return
+	 */
+	public long getAverageOversleep() {
+		long waits = frames - deadlineMisses;
+		return waits > 0 ? totalOversleep / waits : 0;
+	}
+
+	/**
+	 * Get the largest time in nanoseconds that waiting overshot the deadline.
+	 * 
+	 * @return
+	 */
+	public long getMaxOversleep() {
+		return maxOversleep;
+	}
+
+	public void resetStatistics() {
+		frames = 0;
+		deadlineMisses = 0;
+		totalOversleep = 0;
+		maxOversleep = 0;
+	}
+}
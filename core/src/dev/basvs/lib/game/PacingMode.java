@@ -0,0 +1,86 @@
+package dev.basvs.lib.game;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ways of waiting for the end of a frame. Each mode trades CPU usage for precision.
+ */
+public enum PacingMode {
+
+	/**
+	 * Do not wait at all, leave frame limiting to vsync or the backend.
+	 */
+	Off {
+		@Override
+		public void waitUntil(long deadline) {
+			// Do nothing
+		}
+	},
+
+	/**
+	 * Sleep in steps of one millisecond. Low CPU usage, but may overshoot the deadline by a millisecond or more.
+	 */
+	Sleep {
+		@Override
+		public void waitUntil(long deadline) {
+			try {
+				while (System.nanoTime() < deadline) {
+					Thread.sleep(1);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	},
+
+	/**
+	 * Yield until the deadline. Smooth, but keeps a core busy.
+	 */
+	Yield {
+		@Override
+		public void waitUntil(long deadline) {
+			while (System.nanoTime() < deadline) {
+				Thread.yield();
+			}
+		}
+	},
+
+	/**
+	 * Sleep coarsely while the deadline is far away, then park for shorter periods, and spin for the last bit.
+	 * Nearly as precise as yielding, with hardly any CPU usage.
+	 */
+	Precise {
+		@Override
+		public void waitUntil(long deadline) {
+			try {
+				long remaining = deadline - System.nanoTime();
+				while (remaining > SLEEP_MARGIN_NS) {
+					Thread.sleep(1);
+					remaining = deadline - System.nanoTime();
+				}
+				while (remaining > SPIN_NS) {
+					LockSupport.parkNanos(remaining - SPIN_NS);
+					remaining = deadline - System.nanoTime();
+				}
+				while (System.nanoTime() < deadline) {
+					// Spin
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	};
+
+	// Only sleep if the deadline is at least this far away, as sleeping may overshoot by more than a millisecond
+	private static final long SLEEP_MARGIN_NS = 2000000;
+	// Busy wait for the final stretch, parking is not precise enough below this
+	private static final long SPIN_NS = 100000;
+
+	/**
+	 * Wait until the given time.
+	 * 
+	 * @param deadline
+	 *            in System.nanoTime() units
+	 */
+	public abstract void waitUntil(long deadline);
+}
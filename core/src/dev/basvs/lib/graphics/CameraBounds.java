@@ -0,0 +1,89 @@
+package dev.basvs.lib.graphics;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+
+/**
+ * The area an orthographic camera sees, to skip drawing things outside of it. Counts how many things were found
+ * visible and how many were culled.
+ */
+public class CameraBounds {
+
+	private float left, right, bottom, top;
+
+	// Statistics
+	private long drawn = 0, culled = 0;
+
+	/**
+	 * Take the visible area from the camera, which must not be rotated.
+	 *
+	 * @param camera
+	 */
+	public void set(OrthographicCamera camera) {
+		set(camera, 1f);
+	}
+
+	/**
+	 * Take the visible area from the camera, converted to other units.
+	 *
+	 * @param camera
+	 * @param scale
+	 *            factor from camera units to the units that will be tested
+	 */
+	public void set(OrthographicCamera camera, float scale) {
+		float halfWidth = camera.viewportWidth * camera.zoom / 2;
+		float halfHeight = camera.viewportHeight * camera.zoom / 2;
+		left = (camera.position.x - halfWidth) * scale;
+		right = (camera.position.x + halfWidth) * scale;
+		bottom = (camera.position.y - halfHeight) * scale;
+		top = (camera.position.y + halfHeight) * scale;
+	}
+
+	public float getLeft() {
+		return left;
+	}
+
+	public float getRight() {
+		return right;
+	}
+
+	public float getBottom() {
+		return bottom;
+	}
+
+	public float getTop() {
+		return top;
+	}
+
+	/**
+	 * Check whether a rectangle overlaps the visible area, and count it as drawn or culled.
+	 *
+	 * @param x
+	 *            center
+	 * @param y
+	 *            center
+	 * @param halfWidth
+	 * @param halfHeight
+	 * @return
+	 */
+	public boolean isVisible(float x, float y, float halfWidth, float halfHeight) {
+		if (x + halfWidth < left || x - halfWidth > right || y + halfHeight < bottom || y - halfHeight > top) {
+			culled++;
+			return false;
+		}
+		drawn++;
+		return true;
+	}
+
+	public long getDrawn() {
+		return drawn;
+	}
+
+	public long getCulled() {
+		return culled;
+	}
+
+	public void resetStatistics() {
+		drawn = 0;
+		culled = 0;
+	}
+}
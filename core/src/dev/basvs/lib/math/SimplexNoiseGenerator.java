@@ -3,15 +3,16 @@ package dev.basvs.lib.math;
 /**
  * Modified version of the SimplexNoise code placed in the public domain by Stefan Gustavson, Link�ping University,
  * Sweden
+ * 
+ * An instance never changes after it is created, so it can be shared by threads.
  */
 public class SimplexNoiseGenerator {
 
-	private static final FastRandom random = new FastRandom();
-
-	private static int grad3[][] = { { 1, 1, 0 }, { -1, 1, 0 }, { 1, -1, 0 }, { -1, -1, 0 }, { 1, 0, 1 }, { -1, 0, 1 },
+	private static final int grad3[][] = { { 1, 1, 0 }, { -1, 1, 0 }, { 1, -1, 0 }, { -1, -1, 0 }, { 1, 0, 1 }, { -1, 0, 1 },
 			{ 1, 0, -1 }, { -1, 0, -1 }, { 0, 1, 1 }, { 0, -1, 1 }, { 0, 1, -1 }, { 0, -1, -1 } };
 
-	private static int p[] = { 151, 160, 137, 91, 90, 15, 131, 13, 201, 95, 96, 53, 194, 233, 7, 225, 140, 36, 103, 30,
+	// Permutation table of the original implementation
+	private static final int p[] = { 151, 160, 137, 91, 90, 15, 131, 13, 201, 95, 96, 53, 194, 233, 7, 225, 140, 36, 103, 30,
 			69, 142, 8, 99, 37, 240, 21, 10, 23, 190, 6, 148, 247, 120, 234, 75, 0, 26, 197, 62, 94, 252, 219, 203,
 			117, 35, 11, 32, 57, 177, 33, 88, 237, 149, 56, 87, 174, 20, 125, 136, 171, 168, 68, 175, 74, 165, 71, 134,
 			139, 48, 27, 166, 77, 146, 158, 231, 83, 111, 229, 122, 60, 211, 133, 230, 220, 105, 92, 41, 55, 46, 245,
@@ -25,12 +26,37 @@ public class SimplexNoiseGenerator {
 			215, 61, 156, 180 };
 
 	// To remove the need for index wrapping, double the permutation table length
-	private static int perm[] = new int[512];
-	static {
+	private final int perm[] = new int[512];
+
+	/**
+	 * Create a noise generator with the permutation table of the original implementation.
+	 */
+	public SimplexNoiseGenerator() {
 		for (int i = 0; i < 512; i++)
 			perm[i] = p[i & 255];
 	}
 
+	/**
+	 * Create a noise generator with its own permutation table. The same seed always gives the same noise. The table
+	 * never changes afterwards, so the generator can be used from multiple threads.
+	 * 
+	 * @param seed
+	 */
+	public SimplexNoiseGenerator(long seed) {
+		FastRandom random = new FastRandom((int) (seed ^ (seed >>> 32)));
+		int[] shuffled = new int[256];
+		for (int i = 0; i < 256; i++)
+			shuffled[i] = i;
+		for (int i = 255; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int nSwap = shuffled[i];
+			shuffled[i] = shuffled[j];
+			shuffled[j] = nSwap;
+		}
+		for (int i = 0; i < 512; i++)
+			perm[i] = shuffled[i & 255];
+	}
+
 	// This method is a *lot* faster than using (int)Math.floor(x)
 	private static int fastfloor(double x) {
 		return x > 0 ? (int) x : (int) x - 1;
@@ -41,7 +67,7 @@ public class SimplexNoiseGenerator {
 	}
 
 	// 2D simplex noise
-	public static double noise(double xin, double yin) {
+	public double noise(double xin, double yin) {
 		double n0, n1, n2;
 
 		final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
@@ -103,17 +129,68 @@ public class SimplexNoiseGenerator {
 		return 70.0 * (n0 + n1 + n2);
 	}
 
-	public static void genGrad(long seed) {
-		for (int i = 0; i < 255; i++)
-			p[i] = i;
-		for (int i = 0; i < 255; i++) {
-			int j = random.nextInt(255);
-			int nSwap = p[i];
-			p[i] = p[j];
-			p[j] = nSwap;
-		}
+	// Floor for floats, also correct for negative whole numbers
+	private static int fastfloor(float x) {
+		int i = (int) x;
+		return x < i ? i - 1 : i;
+	}
 
-		for (int i = 0; i < 512; i++)
-			perm[i] = p[i & 255];
+	// Gradient for 1D noise: one of -8..-1, 1..8 times the distance
+	private static float grad(int hash, float x) {
+		int h = hash & 15;
+		// Without a branch, as the sign is random: bit 3 set gives 1 - 2 = -1
+		return (1 + (h & 7)) * (1 - ((h >> 2) & 2)) * x;
+	}
+
+	/**
+	 * 1D simplex noise, in floats.
+	 * 
+	 * @param x
+	 * @return a value between -1 and 1
+	 */
+	public float noise(float x) {
+		int i0 = fastfloor(x);
+		float x0 = x - i0;
+		float x1 = x0 - 1f;
+
+		float t0 = 1f - x0 * x0;
+		t0 *= t0;
+		float n0 = t0 * t0 * grad(perm[i0 & 255], x0);
+
+		float t1 = 1f - x1 * x1;
+		t1 *= t1;
+		float n1 = t1 * t1 * grad(perm[(i0 + 1) & 255], x1);
+
+		// Scale the result to fit in -1..1
+		return 0.395f * (n0 + n1);
+	}
+
+	/**
+	 * Fill a row with the sum of several octaves of 1D noise, sampled at evenly spaced positions. The positions are
+	 * computed as x0 + i * dx, so rows that share a position get exactly the same value there.
+	 * 
+	 * @param out
+	 *            receives the values
+	 * @param count
+	 *            number of values to compute
+	 * @param x0
+	 *            position of the first value
+	 * @param dx
+	 *            distance between values
+	 * @param frequencies
+	 *            frequency of each octave, positions are multiplied by it
+	 * @param amplitudes
+	 *            amplitude of each octave
+	 */
+	public void fill(float[] out, int count, float x0, float dx, float[] frequencies, float[] amplitudes) {
+		int octaves = frequencies.length;
+		for (int i = 0; i < count; i++) {
+			float x = x0 + i * dx;
+			float sum = 0f;
+			for (int o = 0; o < octaves; o++) {
+				sum += noise(x * frequencies[o]) * amplitudes[o];
+			}
+			out[i] = sum;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package dev.basvs.lib.profile;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Measures how long named phases of a frame take, keeping a latency histogram per phase. Phases are registered up
+ * front; timing them only costs two calls to System.nanoTime() and does not allocate, so the profiler can stay
+ * enabled in release builds.
+ */
+public class FrameProfiler {
+
+	private String[] names = new String[0];
+	private LatencyHistogram[] histograms = new LatencyHistogram[0];
+	private long[] startTimes = new long[0];
+
+	private boolean enabled = true;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Register a phase, or look up the phase if one with this name already exists.
+	 * 
+	 * @param name
+	 * @return the id to pass to {@link #begin(int)} and {@link #end(int)}
+	 */
+	public int addPhase(String name) {
+		for (int p = 0; p < names.length; p++) {
+			if (names[p].equals(name)) {
+				return p;
+			}
+		}
+		int phase = names.length;
+		String[] newNames = new String[phase + 1];
+		LatencyHistogram[] newHistograms = new LatencyHistogram[phase + 1];
+		long[] newStartTimes = new long[phase + 1];
+		System.arraycopy(names, 0, newNames, 0, phase);
+		System.arraycopy(histograms, 0, newHistograms, 0, phase);
+		// Phases may be added while others are being timed
+		System.arraycopy(startTimes, 0, newStartTimes, 0, phase);
+		newNames[phase] = name;
+		newHistograms[phase] = new LatencyHistogram();
+		names = newNames;
+		histograms = newHistograms;
+		startTimes = newStartTimes;
+		return phase;
+	}
+
+	public void begin(int phase) {
+		if (enabled) {
+			startTimes[phase] = System.nanoTime();
+		}
+	}
+
+	public void end(int phase) {
+		if (enabled) {
+			histograms[phase].record(System.nanoTime() - startTimes[phase]);
+		}
+	}
+
+	public int getPhaseCount() {
+		return names.length;
+	}
+
+	public String getPhaseName(int phase) {
+		return names[phase];
+	}
+
+	public LatencyHistogram getHistogram(int phase) {
+		return histograms[phase];
+	}
+
+	public void reset() {
+		for (LatencyHistogram histogram : histograms) {
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * Write one line per phase with the sample count and the mean, p50, p95, p99 and max durations in microseconds.
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void writeCsv(Writer writer) throws IOException {
+		writer.write("phase,count,mean_us,p50_us,p95_us,p99_us,max_us\n");
+		for (int p = 0; p < names.length; p++) {
+			LatencyHistogram h = histograms[p];
+			writer.write(names[p] + "," + h.getCount() + "," + micros(h.getMean()) + ","
+					+ micros(h.getPercentile(0.5)) + "," + micros(h.getPercentile(0.95)) + ","
+					+ micros(h.getPercentile(0.99)) + "," + micros(h.getMax()) + "\n");
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Write the same statistics as {@link #writeCsv(Writer)} as a JSON object keyed by phase name.
+	 * 
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		writer.write("{\n");
+		for (int p = 0; p < names.length; p++) {
+			LatencyHistogram h = histograms[p];
+			writer.write("  \"" + names[p] + "\": { \"count\": " + h.getCount() + ", \"mean_us\": "
+					+ micros(h.getMean()) + ", \"p50_us\": " + micros(h.getPercentile(0.5)) + ", \"p95_us\": "
+					+ micros(h.getPercentile(0.95)) + ", \"p99_us\": " + micros(h.getPercentile(0.99))
+					+ ", \"max_us\": " + micros(h.getMax()) + " }" + (p < names.length - 1 ? "," : "") + "\n");
+		}
+		writer.write("}\n");
+		writer.flush();
+	}
+
+	private static String micros(long nanos) {
+		return String.valueOf(nanos / 1000) + "." + String.valueOf(nanos / 100 % 10);
+	}
+}
@@ -0,0 +1,103 @@
+package dev.basvs.lib.profile;
+
+/**
+ * Histogram of durations in nanoseconds with a fixed set of logarithmic buckets, so recording never allocates. Each
+ * power of two is split into 16 linear buckets, which keeps percentiles within about 6% of the real value.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Largest value with its own bucket is about 2^40 ns (18 minutes), anything larger ends up in the last bucket
+	private static final int MAX_SHIFT = 40 - SUB_BUCKET_BITS;
+	private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count = 0;
+	private long sum = 0;
+	private long max = 0;
+
+	/**
+	 * Add a duration to the histogram.
+	 * 
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		counts[bucketIndex(nanos)]++;
+		count++;
+		sum += nanos;
+		if (nanos > max) {
+			max = nanos;
+		}
+	}
+
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		if (shift > MAX_SHIFT) {
+			return BUCKETS - 1;
+		}
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	// Largest value that ends up in this bucket
+	private static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Get the duration below which the given fraction of the recorded durations lie, rounded up to the bucket size.
+	 * 
+	 * @param fraction
+	 *            between 0 and 1, e.g. 0.99 for the 99th percentile
+	 * @return duration in nanoseconds
+	 */
+	public long getPercentile(double fraction) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(fraction * count);
+		if (rank < 1) {
+			rank = 1;
+		}
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += counts[b];
+			if (seen >= rank) {
+				return Math.min(bucketUpperBound(b), max);
+			}
+		}
+		return max;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public long getMean() {
+		return count > 0 ? sum / count : 0;
+	}
+
+	public void reset() {
+		for (int b = 0; b < BUCKETS; b++) {
+			counts[b] = 0;
+		}
+		count = 0;
+		sum = 0;
+		max = 0;
+	}
+}
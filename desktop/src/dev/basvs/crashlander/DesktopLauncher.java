@@ -9,7 +9,8 @@ public class DesktopLauncher {
 	public static void main (String[] arg) {
 		Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
 		config.setWindowedMode(1024, 768);
-		config.setForegroundFPS(60);
+		// The game limits its own frame rate, see the targetFps and pacingMode preferences
+		config.setForegroundFPS(0);
 		config.setTitle("CrashLander");
 		new Lwjgl3Application(new CrashLander(), config);
 	}
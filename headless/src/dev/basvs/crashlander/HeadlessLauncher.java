@@ -0,0 +1,89 @@
+package dev.basvs.crashlander;
+
+import java.io.PrintWriter;
+
+import com.badlogic.gdx.files.FileHandle;
+import dev.basvs.crashlander.controller.LanderController.Control;
+import dev.basvs.crashlander.lander.Lander;
+import dev.basvs.crashlander.simulation.Simulation;
+import dev.basvs.crashlander.simulation.SimulationAssets;
+import dev.basvs.crashlander.terrain.MountainWorldGenerator;
+import dev.basvs.lib.profile.FrameProfiler;
+
+/**
+ * Runs flights without a display, stepping the simulation as fast as possible, and reports the tick rate reached.
+ * Must be started from the assets directory.
+ * 
+ * Arguments: [flights] [simulated seconds per flight] [ticks per simulated second] [seed] [landscape width]
+ * [compound]
+ * 
+ * Flight f uses seed + f, so runs with the same seed fly over the same landscapes. A landscape width of zero gives a
+ * landscape without edges. Landers are only built as a single compound body if compound is true.
+ */
+public class HeadlessLauncher {
+
+	// Vertical speed (m/s) at which the hover autopilot switches the main engine on and off
+	private static final float HOVER_THRUST_ON_SPEED = -2f;
+	private static final float HOVER_THRUST_OFF_SPEED = 0f;
+
+	public static void main(String[] arg) throws Exception {
+		int flights = arg.length > 0 ? Integer.parseInt(arg[0]) : 10;
+		float flightSeconds = arg.length > 1 ? Float.parseFloat(arg[1]) : 60f;
+		int tickRate = arg.length > 2 ? Integer.parseInt(arg[2]) : Simulation.DEFAULT_TICK_RATE;
+		long seed = arg.length > 3 ? Long.parseLong(arg[3]) : System.nanoTime();
+		float landscapeWidth = arg.length > 4 ? Float.parseFloat(arg[4]) : Simulation.LANDSCAPE_WIDTH;
+		boolean compound = arg.length > 5 ? Boolean.parseBoolean(arg[5]) : false;
+
+		SimulationAssets assets = new SimulationAssets();
+		assets.partDesigns = new FileHandle("data/parts.json");
+		FrameProfiler profiler = new FrameProfiler();
+
+		long ticksPerFlight = (long) (flightSeconds * tickRate);
+		long totalTicks = 0;
+		long chunksLoaded = 0, chunksUnloaded = 0;
+		long startTime = System.nanoTime();
+		for (int f = 0; f < flights; f++) {
+			Simulation simulation = new Simulation(assets, null, Simulation.createDefaultDesign(),
+					new MountainWorldGenerator(seed + f), landscapeWidth, compound);
+			simulation.setTickRate(tickRate);
+			simulation.setProfiler(profiler);
+			boolean thrust = false;
+			for (long t = 0; t < ticksPerFlight; t++) {
+				thrust = hover(simulation, thrust);
+				simulation.update(simulation.getTimeStep());
+			}
+			totalTicks += simulation.getTicks();
+			chunksLoaded += simulation.getLanderWorld().getBodiesLoaded();
+			chunksUnloaded += simulation.getLanderWorld().getBodiesUnloaded();
+			simulation.dispose();
+		}
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+
+		System.out.println(flights + " flights, " + totalTicks + " ticks in " + String.format("%.2f", seconds)
+				+ " s: " + String.format("%.0f", totalTicks / seconds) + " ticks/s, "
+				+ String.format("%.1f", totalTicks / (seconds * tickRate)) + "x real time");
+		System.out.println("terrain chunk bodies loaded: " + chunksLoaded + ", unloaded: " + chunksUnloaded);
+		profiler.writeCsv(new PrintWriter(System.out));
+	}
+
+	/**
+	 * Very simple autopilot that keeps the lander from falling too fast.
+	 * 
+	 * @param simulation
+	 * @param thrust
+	 *            whether the main engine is currently on
+	 * @return whether the main engine should be on
+	 */
+	private static boolean hover(Simulation simulation, boolean thrust) {
+		Lander lander = simulation.getLander();
+		float verticalSpeed = lander.core.body.getLinearVelocity().y * GameScreen.BOX2D_TO_WORLD;
+		if (!thrust && verticalSpeed < HOVER_THRUST_ON_SPEED) {
+			simulation.getLanderController().controlSwitch(Control.Up, true);
+			return true;
+		} else if (thrust && verticalSpeed > HOVER_THRUST_OFF_SPEED) {
+			simulation.getLanderController().controlSwitch(Control.Up, false);
+			return false;
+		}
+		return thrust;
+	}
+}